@@ -0,0 +1,303 @@
+/*
+ * BatchEnv
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev;
+
+import com.fbdev.helios.input.JoypadProvider;
+import com.fbdev.helios.input.JoypadProvider.JoypadAction;
+import com.fbdev.helios.input.JoypadProvider.JoypadButton;
+import com.fbdev.helios.model.DisplayWindow;
+import com.fbdev.helios.model.SystemProvider;
+import com.fbdev.helios.util.VideoMode;
+import com.fbdev.util.RomHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static com.fbdev.helios.input.InputProvider.PlayerNumber.P1;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * BatchEnv
+ * <p>
+ * Steps N systems in lockstep, one frame per step(actions), for reinforcement learning.
+ * Observations and rewards of all the instances go to one preallocated direct buffer,
+ * optionally mapped to a file so that another process can read it without copies.
+ * <p>
+ * Layout, native byte order:
+ * [0, HEADER_BYTES)                    long step counter, written last
+ * [HEADER_BYTES, rewardsOffset)        one observation per instance, getObsBytes() each
+ * [rewardsOffset, getBufferBytes())    one int per instance, the P1 score gained in the step
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class BatchEnv implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(BatchEnv.class.getSimpleName());
+
+    //one cache line, keeps the observations aligned
+    public static final int HEADER_BYTES = 64;
+
+    //actions, bitmask
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_DOWN = 1 << 1;
+    public static final int ACTION_LEFT = 1 << 2;
+    public static final int ACTION_RIGHT = 1 << 3;
+    public static final int ACTION_START = 1 << 4;
+    public static final int ACTION_COIN = 1 << 5;
+
+    private static final JoypadButton[] ACTION_BUTTONS = {
+            JoypadButton.U, JoypadButton.D, JoypadButton.L, JoypadButton.R, JoypadButton.S, JoypadButton.A
+    };
+
+    //P1 score, 3 bytes BCD, least significant first
+    private static final int SCORE_RAM_OFFSET = 0xE80;
+
+    public enum ObsType {
+        //indexed framebuffer, 224x288 bytes, see Video.getIndexedColors
+        FRAME(0, VideoMode.H28_V36.getPixelW() * VideoMode.H28_V36.getPixelH()),
+        //tile codes of the screen, 0x4000-0x43FF
+        TILES(0, 0x400),
+        //the whole ram, 0x4000-0x4FFF
+        RAM(0, 0x1000);
+
+        private final int ramOffset, bytes;
+
+        ObsType(int ramOffset, int bytes) {
+            this.ramOffset = ramOffset;
+            this.bytes = bytes;
+        }
+    }
+
+    private final EmulationEngine engine;
+    private final ObsType obsType;
+    private final ByteBuffer batch;
+    private final ByteBuffer[] obs;
+    private final int[] lastAction;
+    private final int[] lastScore;
+    private final int rewardsOffset;
+    private final Optional<FileChannel> channel;
+    private long stepCounter;
+
+    public BatchEnv(RomHelper romHelper, int instances, ObsType obsType) {
+        this(romHelper, instances, EmulationEngine.DEFAULT_WORKERS, obsType, Optional.empty());
+    }
+
+    /**
+     * @param sharedFile when present, the batch buffer is mapped to this file
+     */
+    public BatchEnv(RomHelper romHelper, int instances, int numWorkers, ObsType obsType, Optional<Path> sharedFile) {
+        this.obsType = obsType;
+        this.rewardsOffset = HEADER_BYTES + instances * obsType.bytes;
+        int size = rewardsOffset + instances * Integer.BYTES;
+        this.channel = sharedFile.map(BatchEnv::openChannel);
+        this.batch = channel.map(c -> map(c, size)).orElseGet(() -> ByteBuffer.allocateDirect(size)).
+                order(ByteOrder.nativeOrder());
+        this.obs = new ByteBuffer[instances];
+        for (int i = 0; i < instances; i++) {
+            batch.position(HEADER_BYTES + i * obsType.bytes).limit(HEADER_BYTES + (i + 1) * obsType.bytes);
+            obs[i] = batch.slice();
+            batch.clear();
+        }
+        this.lastAction = new int[instances];
+        this.lastScore = new int[instances];
+        this.engine = new EmulationEngine(romHelper, instances, numWorkers,
+                i -> obsType == ObsType.FRAME ? new ObservationWindow(obs[i]) : DisplayWindow.HEADLESS_INSTANCE);
+        LOG.info("Observation: {}, {} bytes, buffer: {} bytes{}", obsType, obsType.bytes, size,
+                sharedFile.map(p -> ", mapped to " + p.toAbsolutePath()).orElse(""));
+    }
+
+    /**
+     * Runs every instance for one frame with the given actions (bitmask of ACTION_*),
+     * returns the batch buffer with the new observations and rewards
+     */
+    public ByteBuffer step(int[] actions) {
+        if (actions.length != obs.length) {
+            throw new IllegalArgumentException("Expected " + obs.length + " actions, got " + actions.length);
+        }
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i] != lastAction[i]) {
+                setAction(engine.getSystem(i).getJoypad(), actions[i]);
+                lastAction[i] = actions[i];
+            }
+        }
+        engine.runFrames(1, this::writeResult);
+        batch.putLong(0, ++stepCounter);
+        return batch;
+    }
+
+    private static void setAction(JoypadProvider joypad, int action) {
+        for (int i = 0; i < ACTION_BUTTONS.length; i++) {
+            joypad.setButtonAction(P1, ACTION_BUTTONS[i],
+                    (action & (1 << i)) > 0 ? JoypadAction.PRESSED : JoypadAction.RELEASED);
+        }
+        //visible to the game on the next frame, not the one after
+        joypad.newFrame();
+    }
+
+    //runs on the worker that ran the instance, instances write to disjoint parts of the buffer
+    private void writeResult(int instance) {
+        byte[] ram = engine.getSystem(instance).getBus().getRam();
+        if (obsType != ObsType.FRAME) {
+            ByteBuffer o = obs[instance];
+            o.clear();
+            o.put(ram, obsType.ramOffset, obsType.bytes);
+        }
+        int score = bcd(ram[SCORE_RAM_OFFSET]) + bcd(ram[SCORE_RAM_OFFSET + 1]) * 100 +
+                bcd(ram[SCORE_RAM_OFFSET + 2]) * 10_000;
+        //the score is cleared on a new game
+        int reward = Math.max(0, score - lastScore[instance]);
+        lastScore[instance] = score;
+        batch.putInt(rewardsOffset + instance * Integer.BYTES, reward);
+    }
+
+    private static int bcd(byte b) {
+        return ((b >> 4) & 0xF) * 10 + (b & 0xF);
+    }
+
+    public ByteBuffer getBuffer() {
+        return batch;
+    }
+
+    public int getObsBytes() {
+        return obsType.bytes;
+    }
+
+    public int getObsOffset(int instance) {
+        return HEADER_BYTES + instance * obsType.bytes;
+    }
+
+    public int getRewardOffset(int instance) {
+        return rewardsOffset + instance * Integer.BYTES;
+    }
+
+    public int getBufferBytes() {
+        return batch.capacity();
+    }
+
+    public int getNumInstances() {
+        return obs.length;
+    }
+
+    public EmulationEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    public void close() {
+        engine.shutdown();
+        channel.ifPresent(c -> {
+            try {
+                c.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close the shared file", e);
+            }
+        });
+    }
+
+    private static FileChannel openChannel(Path file) {
+        try {
+            return FileChannel.open(file, CREATE, READ, WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, int size) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies each indexed frame to the instance observation, repeated frames leave it as it is
+     */
+    private static class ObservationWindow implements DisplayWindow {
+
+        private final ByteBuffer obs;
+        private final int[] render = new int[VideoMode.H28_V36.getPixelW() * VideoMode.H28_V36.getPixelH()];
+
+        ObservationWindow(ByteBuffer obs) {
+            this.obs = obs;
+        }
+
+        @Override
+        public void renderScreenIndexed(byte[] indexed, int[] colors, Optional<String> label, VideoMode videoMode) {
+            obs.clear();
+            obs.put(indexed, 0, Math.min(indexed.length, obs.capacity()));
+        }
+
+        @Override
+        public void renderScreen(Optional<String> label, VideoMode videoMode) {
+            //DO NOTHING, Video renders indexed frames
+        }
+
+        @Override
+        public void repeatFrame(Optional<String> label, VideoMode videoMode) {
+            //DO NOTHING
+        }
+
+        @Override
+        public int[] acquireRender() {
+            return render;
+        }
+
+        @Override
+        public void setTitle(String rom) {
+            //DO NOTHING
+        }
+
+        @Override
+        public void init() {
+            //DO NOTHING
+        }
+
+        @Override
+        public void resetScreen() {
+            //DO NOTHING
+        }
+
+        @Override
+        public void setFullScreen(boolean value) {
+            //DO NOTHING
+        }
+
+        @Override
+        public void reloadSystem(SystemProvider systemProvider) {
+            //DO NOTHING
+        }
+
+        @Override
+        public void addKeyListener(KeyListener keyAdapter) {
+            //DO NOTHING
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * EmulationEngine
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev;
+
+import com.fbdev.helios.model.DisplayWindow;
+import com.fbdev.helios.ui.HeadlessWindow;
+import com.fbdev.helios.util.PriorityThreadFactory;
+import com.fbdev.helios.util.VideoMode;
+import com.fbdev.util.RomHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * EmulationEngine
+ * <p>
+ * Runs N independent systems, unthrottled, on a pool of worker threads.
+ * The systems share the RomHelper, the decoded graphics (VideoAssets) and ROM code (Z80Assets),
+ * everything else (bus, cpu, vdp, telemetry) belongs to one system, which is run by one worker at a time.
+ * helios.engine.workers sets the default pool size, the number of cores otherwise.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class EmulationEngine {
+
+    private static final Logger LOG = LogManager.getLogger(EmulationEngine.class.getSimpleName());
+
+    public static final int DEFAULT_WORKERS = Integer.parseInt(System.getProperty("helios.engine.workers",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+    private final List<Z80BaseSystem> systems;
+    private final List<DisplayWindow> windows;
+    private final ExecutorService workers;
+    private final int numWorkers;
+
+    public EmulationEngine(RomHelper romHelper, int instances) {
+        this(romHelper, instances, DEFAULT_WORKERS, i -> new HeadlessWindow(VideoMode.H28_V36));
+    }
+
+    public EmulationEngine(RomHelper romHelper, int instances, int numWorkers,
+                           IntFunction<DisplayWindow> windowFactory) {
+        if (!romHelper.isRomSetFound()) {
+            throw new IllegalArgumentException("Unable to find a supported romSet");
+        }
+        this.numWorkers = Math.max(1, Math.min(numWorkers, instances));
+        List<Z80BaseSystem> s = new ArrayList<>(instances);
+        List<DisplayWindow> w = new ArrayList<>(instances);
+        for (int i = 0; i < instances; i++) {
+            DisplayWindow window = windowFactory.apply(i);
+            window.init();
+            Z80BaseSystem system = Z80BaseSystem.createInstance(romHelper, window);
+            system.setThrottled(false);
+            s.add(system);
+            w.add(window);
+        }
+        this.systems = Collections.unmodifiableList(s);
+        this.windows = Collections.unmodifiableList(w);
+        this.workers = Executors.newFixedThreadPool(this.numWorkers, new PriorityThreadFactory("engine"));
+        LOG.info("Instances: {}, workers: {}", instances, this.numWorkers);
+    }
+
+    /**
+     * Runs every system for the given number of frames, returns when all of them are done
+     */
+    public void runFrames(int frames) {
+        runFrames(frames, i -> {
+        });
+    }
+
+    /**
+     * As runFrames(frames), then calls onDone with the instance number, on the worker that ran it
+     */
+    public void runFrames(int frames, IntConsumer onDone) {
+        List<Callable<Void>> tasks = new ArrayList<>(systems.size());
+        for (int k = 0; k < systems.size(); k++) {
+            Z80BaseSystem system = systems.get(k);
+            int instance = k;
+            tasks.add(() -> {
+                for (int i = 0; i < frames; i++) {
+                    system.runFrame();
+                }
+                onDone.accept(instance);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> f : workers.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("System error", e.getCause());
+        }
+    }
+
+    public Z80BaseSystem getSystem(int instance) {
+        return systems.get(instance);
+    }
+
+    public DisplayWindow getWindow(int instance) {
+        return windows.get(instance);
+    }
+
+    public int getNumInstances() {
+        return systems.size();
+    }
+
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
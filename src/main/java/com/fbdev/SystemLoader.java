@@ -22,7 +22,9 @@ package com.fbdev;
 import com.fbdev.helios.input.KeyboardInputHelper;
 import com.fbdev.helios.model.DisplayWindow;
 import com.fbdev.helios.model.SystemProvider;
+import com.fbdev.helios.ui.HeadlessWindow;
 import com.fbdev.helios.util.Util;
+import com.fbdev.helios.util.VideoMode;
 import com.fbdev.ui.SwingWindow;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -68,10 +70,9 @@ public class SystemLoader {
         headless = Boolean.parseBoolean(System.getProperty("helios.headless", "false"));
     }
 
+    //helios.headless is checked first, AWT is not touched when it is set
     protected static boolean isHeadless() {
-        GraphicsEnvironment ge =
-                GraphicsEnvironment.getLocalGraphicsEnvironment();
-        return ge.isHeadlessInstance() || headless;
+        return headless || GraphicsEnvironment.isHeadless();
     }
 
     private static void setHeadless(boolean headless) {
@@ -107,8 +108,12 @@ public class SystemLoader {
         boolean isHeadless = isHeadless();
         LOG.info("Headless mode: {}", isHeadless);
         SystemLoader.setHeadless(isHeadless);
-        KeyboardInputHelper.init();
-        initLookAndFeel();
+        if (isHeadless) {
+            System.setProperty("java.awt.headless", "true");
+        } else {
+            KeyboardInputHelper.init();
+            initLookAndFeel();
+        }
         INSTANCE.createFrame(isHeadless);
         init.set(true);
     }
@@ -124,8 +129,13 @@ public class SystemLoader {
 
     // Create the frame on the event dispatching thread
     protected void createFrame(boolean isHeadless) {
+        if (isHeadless) {
+            emuFrame = new HeadlessWindow(VideoMode.H28_V36);
+            emuFrame.init();
+            return;
+        }
         Runnable frameRunnable = () -> {
-            emuFrame = isHeadless ? DisplayWindow.HEADLESS_INSTANCE : new SwingWindow(getSystemAdapter());
+            emuFrame = new SwingWindow(getSystemAdapter());
             emuFrame.init();
         };
         if (SwingUtilities.isEventDispatchThread()) {
@@ -20,21 +20,28 @@
 package com.fbdev;
 
 import com.fbdev.bus.SystemBus;
-import com.fbdev.helios.BaseVdpProvider;
+import com.fbdev.helios.IndexedVdpProvider;
 import com.fbdev.helios.input.JoypadProvider;
+import com.fbdev.helios.util.RenderPool;
 import com.fbdev.helios.util.VideoMode;
 import com.fbdev.util.RomHelper;
+import com.fbdev.util.VideoAssets;
 import com.fbdev.util.VideoUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.awt.*;
-import java.util.EnumMap;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Federico Berti
  * <p>
  * Copyright 2020
  */
-public class Video implements BaseVdpProvider {
+public class Video implements IndexedVdpProvider {
+
+    private final static Logger LOG = LogManager.getLogger(Video.class.getSimpleName());
 
     public final static int NUM_PALETTES_ROM = 64;
     public final static int NUM_TILES_ROM = 256;
@@ -49,148 +56,383 @@ public class Video implements BaseVdpProvider {
     private static final int NUM_TILE_W_SCREEN = VideoMode.H28_V36.getTileW(),
             NUM_TILE_H_SCREEN = VideoMode.H28_V36.getTileH();
     private static final int[] tileMapper = new int[NUM_TILE_W_SCREEN * NUM_TILE_H_SCREEN];
+    //position of the top left pixel of each screen tile
+    private static final int[] tileScreenPx = new int[NUM_TILE_W_SCREEN * NUM_TILE_H_SCREEN];
+    //first screen tile of each tile row
+    private static final int[] tileRowFirst = new int[NUM_TILE_H_SCREEN + 1];
+    private static final int SCREEN_LINE_PX = NUM_TILE_W_SCREEN * TILE_W_PX;
+    private static final int SPRITE_RAM_OFFSET = SystemBus.SPRITE_RAM_START & 0xFFF;
+    private static final int SPRITE_IO_OFFSET = SystemBus.IO_SPRITE_START & 0xFF;
+    private static final int ALL_SPRITES_DIRTY = (1 << NUM_SPRITES_SCREEN) - 1;
+
+    //horizontal strips rendered in parallel, 1 renders on the emulation thread
+    private static final int DEFAULT_STRIPS;
+
+    static {
+        DEFAULT_STRIPS = Integer.parseInt(System.getProperty("pacman.video.strips", "1"));
+        if (DEFAULT_STRIPS > 1) {
+            LOG.info("Parallel rendering, strips: {}", DEFAULT_STRIPS);
+        }
+        VideoUtil.generateTileMapper(tileMapper);
+        generateTileScreenPx();
+    }
 
-    private final byte[] crom, palrom, tileRom, spriteRom;
-    private final byte[] ram;
+    private final byte[] palrom, tileRom;
+    private final byte[] ram, ioReg;
+    private final long[] tileDirty;
+    //the tiles, only the changed ones are redrawn
+    private final byte[] background = new byte[SCREEN_LINE_PX * NUM_TILE_H_SCREEN * TILE_H_PX];
+    //indexed frame for renderScreenDataLinear
+    private byte[] indexedRender;
+    private boolean redrawAllTiles = true;
+    private int numStrips;
     private final Color[] colors;
-    private final int[][] paletteToColorsIdx = new int[NUM_PALETTES_ROM][NUM_COLORS_PALETTE];
-    private final int[][] tileToPaletteIdx = new int[NUM_TILES_ROM][TILE_PX];
+    //decoded from the roms, shared with the other instances
+    private final VideoAssets assets;
+    private final int[][] paletteToColorsIdx;
+    private final int[][] tileToPaletteIdx;
+    //RGB value of each crom color, pixels are indexes in this array;
+    //the last entry is black, for the pixels no tile covers
+    private final int[] cromRgb;
+    private final byte blankIdx;
+    //pixels, filled when first drawn: [palette][tile] and [palette][flipMode][sprite]
+    private final byte[][] tileCache = new byte[NUM_PALETTES_ROM * NUM_TILES_ROM][];
+    private final SpriteSpans[] spriteCache = new SpriteSpans[NUM_PALETTES_ROM * FlipMode.values.length * NUM_SPRITES_ROM];
 
     private final SpriteContext[] spriteContexts = new SpriteContext[NUM_SPRITES_SCREEN];
-
-    private EnumMap<FlipMode, int[][]> spriteFlipMap;
+    //what the strips draw this frame: the changed tiles and the visible sprites, null otherwise
+    private final byte[][] frameTiles = new byte[tileMapper.length][];
+    private final SpriteSpans[] frameSprites = new SpriteSpans[NUM_SPRITES_SCREEN];
+    //bit n set: sprite n registers have changed since the last decode
+    private int spriteDirtyMask = ALL_SPRITES_DIRTY;
 
     @Override
     public void init() {
-        VideoUtil.generateTileMapper(tileMapper);
-        VideoUtil.generateColors(crom, colors);
-        VideoUtil.generatePaletteToCromIdx(palrom, paletteToColorsIdx);
-        VideoUtil.generateTileToPaletteIdx(tileRom, tileToPaletteIdx);
-        spriteFlipMap = VideoUtil.generateSpriteToPaletteIdxMap(spriteRom);
+        Arrays.fill(background, blankIdx);
+        for (int i = 0; i < NUM_PALETTES_ROM; i++) {
+            invalidatePalette(i);
+        }
         for (int i = 0; i < spriteContexts.length; i++) {
             spriteContexts[i] = new SpriteContext();
         }
+        spriteDirtyMask = ALL_SPRITES_DIRTY;
 //        new DebugView(this);
     }
 
-    private void renderSprites(int[] render) {
+    public Video(RomHelper r, SystemBus bus, JoypadProvider joypadProvider) {
+        this.palrom = r.getPalRom();
+        this.tileRom = r.getTileRom();
+        this.ram = bus.getRam();
+        this.ioReg = bus.getIoReg();
+        this.tileDirty = bus.getTileDirty();
+        this.assets = VideoAssets.of(r);
+        this.colors = assets.getColors();
+        this.cromRgb = assets.getCromRgb();
+        this.paletteToColorsIdx = assets.getPaletteToColorsIdx();
+        this.tileToPaletteIdx = assets.getTileToPaletteIdx();
+        this.blankIdx = (byte) colors.length;
+        setRenderStrips(DEFAULT_STRIPS);
+        init();
+    }
+
+    @Override
+    public void renderScreenDataLinear(int[] render) {
+        if (indexedRender == null) {
+            indexedRender = new byte[background.length];
+        }
+        renderScreenDataIndexed(indexedRender);
+        for (int i = 0; i < indexedRender.length; i++) {
+            render[i] = cromRgb[indexedRender[i]];
+        }
+    }
+
+    @Override
+    public void renderScreenDataIndexed(byte[] render) {
+        prepareFrame();
+        if (numStrips > 1) {
+            RenderPool.get().invoke(new StripRender(render, 0, numStrips, numStrips));
+        } else {
+            renderStrip(render, 0, NUM_TILE_H_SCREEN);
+        }
+    }
+
+    @Override
+    public boolean isFrameChanged() {
+        if (redrawAllTiles || spriteDirtyMask != 0) {
+            return true;
+        }
+        for (long dirty : tileDirty) {
+            if (dirty != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int[] getIndexedColors() {
+        return cromRgb;
+    }
+
+    /**
+     * Number of horizontal strips rendered in parallel, 1 renders on the calling thread.
+     */
+    public void setRenderStrips(int strips) {
+        numStrips = Math.max(1, Math.min(NUM_TILE_H_SCREEN, strips));
+    }
+
+    @Override
+    public VideoMode getVideoMode() {
+        return VideoMode.H28_V36;
+    }
+
+    @Override
+    public void markSpriteDirty(int address) {
+        spriteDirtyMask |= 1 << ((address & 0xF) >> 1);
+    }
+
+    @Override
+    public void reload() {
+        spriteDirtyMask = ALL_SPRITES_DIRTY;
+        redrawAllTiles = true;
+    }
+
+    //sprite registers: number/flip and palette in sprite RAM, x and y positions in the IO registers
+    private void decodeSprites() {
+        int mask = spriteDirtyMask;
+        while (mask != 0) {
+            int i = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            SpriteContext sc = spriteContexts[i];
+            int val = ram[SPRITE_RAM_OFFSET + (i << 1)] & 0xFF;
+            sc.number = val >> 2;
+            sc.flipy = val & 1;
+            sc.flipx = (val >> 1) & 1;
+            sc.palette = ram[SPRITE_RAM_OFFSET + (i << 1) + 1] & 0x3F; // 64 palettes
+            sc.xpos = ioReg[SPRITE_IO_OFFSET + (i << 1)] & 0xFF;
+            sc.ypos = ioReg[SPRITE_IO_OFFSET + (i << 1) + 1] & 0xFF;
+        }
+        spriteDirtyMask = 0;
+    }
+
+    public int[][] getSpriteToPaletteIdx() {
+        return assets.getSpriteToPaletteIdx(FlipMode.NO_FLIP);
+    }
+
+    //resolves what changed since the last frame, the strips only copy pixels
+    private void prepareFrame() {
+        boolean all = redrawAllTiles;
+        redrawAllTiles = false;
+        for (int i = 0; i < tileMapper.length; i++) {
+            int tileLoc = tileMapper[i];
+            if (tileLoc < 0 || (!all && (tileDirty[tileLoc >> 6] & (1L << tileLoc)) == 0)) {
+                frameTiles[i] = null;
+                continue;
+            }
+            int tileIdx = ram[tileLoc] & 0xFF;
+            int paletteIdx = ram[tileLoc + SystemBus.PALETTE_RAM_OFFSET] & 0x3F; // 64 palettes
+            frameTiles[i] = getTilePixels(tileIdx, paletteIdx);
+        }
+        Arrays.fill(tileDirty, 0);
+
+        decodeSprites();
         final int linePx = getVideoMode().getPixelW();
         final int lines = getVideoMode().getPixelH();
         for (int i = 0; i < NUM_SPRITES_SCREEN; i++) {
             SpriteContext sc = spriteContexts[i];
             if (sc.xpos < SPRITE_W_PX || sc.ypos < SPRITE_H_PX) {
+                frameSprites[i] = null;
                 continue;
             }
             int h28x_br = sc.xpos - SPRITE_W_PX;
-            int h28x_tl = linePx - 1 - h28x_br;
-            int v36_tl = lines - SPRITE_W_PX - sc.ypos;
-            int screenPos = (v36_tl * linePx) + h28x_tl;
-
-            FlipMode flipMode = FlipMode.values[(sc.flipy << 1) | sc.flipx];
-            int[] paletteIndexes = spriteFlipMap.get(flipMode)[sc.number];
-            int[] paletteCromIdx = paletteToColorsIdx[sc.palette];
-            int startIdx = screenPos, spriteLinePx = 0;
-            final int blackRgb = 0; //no alpha
+            sc.left = linePx - 1 - h28x_br;
+            sc.top = lines - SPRITE_W_PX - sc.ypos;
             //no horizontal wrapping, sprite gets truncated
-            final int firstSpriteLinePx = Math.max(SPRITE_W_PX - (255 - sc.xpos), 0);
-            final int lastSpriteLinePx = Math.min(sc.xpos - SPRITE_W_PX, SPRITE_W_PX);
-
-            for (int j = 0; j < SPRITE_PX; j++) {
-                if (spriteLinePx >= firstSpriteLinePx && spriteLinePx < lastSpriteLinePx) {
-                    int rgbPixel = colors[paletteCromIdx[paletteIndexes[j]]].getRGB();
-                    if (rgbPixel != blackRgb) { //skip transparent px
-                        render[startIdx + spriteLinePx] = rgbPixel;
+            sc.firstPx = Math.max(SPRITE_W_PX - (255 - sc.xpos), 0);
+            sc.lastPx = Math.min(sc.xpos - SPRITE_W_PX, SPRITE_W_PX);
+            FlipMode flipMode = FlipMode.values[(sc.flipy << 1) | sc.flipx];
+            frameSprites[i] = getSpritePixels(sc.number, flipMode, sc.palette);
+        }
+    }
+
+    //tile rows [rowFrom, rowTo): changed tiles, background copy, then the sprites clipped to the strip
+    private void renderStrip(byte[] render, int rowFrom, int rowTo) {
+        for (int i = tileRowFirst[rowFrom]; i < tileRowFirst[rowTo]; i++) {
+            byte[] pixels = frameTiles[i];
+            if (pixels == null) {
+                continue;
+            }
+            int startIdx = tileScreenPx[i];
+            for (int j = 0; j < TILE_PX; j += TILE_W_PX) {
+                System.arraycopy(pixels, j, background, startIdx, TILE_W_PX);
+                startIdx += SCREEN_LINE_PX;
+            }
+        }
+        final int lineFrom = rowFrom * TILE_H_PX, lineTo = rowTo * TILE_H_PX;
+        System.arraycopy(background, lineFrom * SCREEN_LINE_PX, render, lineFrom * SCREEN_LINE_PX,
+                (lineTo - lineFrom) * SCREEN_LINE_PX);
+
+        for (int i = 0; i < NUM_SPRITES_SCREEN; i++) {
+            SpriteSpans sprite = frameSprites[i];
+            if (sprite == null) {
+                continue;
+            }
+            SpriteContext sc = spriteContexts[i];
+            byte[] pixels = sprite.pixels;
+            int[] spans = sprite.spans, rowSpans = sprite.rowSpans;
+            int rowStart = Math.max(0, lineFrom - sc.top), rowEnd = Math.min(SPRITE_H_PX, lineTo - sc.top);
+            int startIdx = (sc.top + rowStart) * SCREEN_LINE_PX + sc.left;
+            for (int row = rowStart; row < rowEnd; row++) {
+                int rowPx = row * SPRITE_W_PX;
+                for (int k = rowSpans[row]; k < rowSpans[row + 1]; k += 2) {
+                    int from = Math.max(spans[k], sc.firstPx);
+                    int to = Math.min(spans[k] + spans[k + 1], sc.lastPx);
+                    if (from < to) {
+                        System.arraycopy(pixels, rowPx + from, render, startIdx + from, to - from);
                     }
                 }
-                spriteLinePx++;
-                if ((j + 1) % SPRITE_W_PX == 0) {
-                    startIdx += linePx;
-                    spriteLinePx = 0;
-                }
+                startIdx += SCREEN_LINE_PX;
             }
         }
     }
 
-    public Video(RomHelper r, byte[] ram, JoypadProvider joypadProvider) {
-        this.crom = r.getCrom();
-        this.palrom = r.getPalRom();
-        this.tileRom = r.getTileRom();
-        this.spriteRom = r.getSpriteRom();
-        this.ram = ram;
-        this.colors = new Color[crom.length];
-        init();
+    private byte[] getTilePixels(int tile, int palette) {
+        int key = palette * NUM_TILES_ROM + tile;
+        byte[] pixels = tileCache[key];
+        if (pixels == null) {
+            pixels = toCromIdx(tileToPaletteIdx[tile], paletteToColorsIdx[palette]);
+            tileCache[key] = pixels;
+        }
+        return pixels;
     }
 
-    @Override
-    public void renderScreenDataLinear(int[] render) {
-        renderTiles(render);
-        renderSprites(render);
+    private SpriteSpans getSpritePixels(int sprite, FlipMode flipMode, int palette) {
+        int key = (palette * FlipMode.values.length + flipMode.ordinal()) * NUM_SPRITES_ROM + sprite;
+        SpriteSpans s = spriteCache[key];
+        if (s == null) {
+            s = new SpriteSpans(toCromIdx(assets.getSpriteToPaletteIdx(flipMode)[sprite], paletteToColorsIdx[palette]), cromRgb);
+            spriteCache[key] = s;
+        }
+        return s;
     }
 
-    @Override
-    public VideoMode getVideoMode() {
-        return VideoMode.H28_V36;
+    private static byte[] toCromIdx(int[] paletteIndexes, int[] paletteCromIdx) {
+        byte[] pixels = new byte[paletteIndexes.length];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) paletteCromIdx[paletteIndexes[i]];
+        }
+        return pixels;
     }
 
-    @Override
-    public void updateSpriteContext(int address, int value) {
-        int val = value & 0xFF;
-        SpriteContext sc = spriteContexts[(address & 0xF) >> 1];
-        if ((address & SystemBus.SPRITE_RAM_START) == SystemBus.SPRITE_RAM_START) {
-            if (address % 2 == 0) {
-                sc.number = val >> 2;
-                sc.flipy = val & 1;
-                sc.flipx = (val >> 1) & 1;
-            } else {
-                sc.palette = val;
-            }
-        } else {
-            if (address % 2 == 0) {
-                sc.xpos = val;
-            } else {
-                sc.ypos = val;
-            }
-        }
+    /**
+     * Shares the tiles and sprites already decoded by another Video, the cached entries are never modified.
+     * To be called on the thread running the other Video.
+     */
+    public void copyCachesFrom(Video from) {
+        System.arraycopy(from.tileCache, 0, tileCache, 0, tileCache.length);
+        System.arraycopy(from.spriteCache, 0, spriteCache, 0, spriteCache.length);
     }
 
-    public int[][] getSpriteToPaletteIdx() {
-        return spriteFlipMap.get(FlipMode.NO_FLIP);
+    /**
+     * Drops the cached tiles and sprites using the palette,
+     * to be called when colors or paletteToColorsIdx change.
+     */
+    public void invalidatePalette(int palette) {
+        int tiles = palette * NUM_TILES_ROM;
+        Arrays.fill(tileCache, tiles, tiles + NUM_TILES_ROM, null);
+        int spritesLen = FlipMode.values.length * NUM_SPRITES_ROM;
+        Arrays.fill(spriteCache, palette * spritesLen, (palette + 1) * spritesLen, null);
+        redrawAllTiles = true;
     }
 
-    private void renderTiles(int[] render) {
-        int startAddrTile = 0;
-        int[] rgbPixels = new int[TILE_PX];
-        int tilesToProcess = NUM_TILE_W_SCREEN * NUM_TILE_H_SCREEN;
+    //tiles not on screen don't take a position, the following ones move back
+    private static void generateTileScreenPx() {
         int lineAddrPx = 0;
         int tileLineStartPx = 0;
-        for (int i = 0; i < tilesToProcess; i++) {
-            int tileLoc = tileMapper[i];
-            if (tileLoc < 0) {
-                continue;
+        int row = 0;
+        for (int i = 0; i < tileMapper.length; i++) {
+            tileScreenPx[i] = tileLineStartPx + lineAddrPx;
+            while (row <= NUM_TILE_H_SCREEN && row * TILE_H_PX * SCREEN_LINE_PX <= tileScreenPx[i]) {
+                tileRowFirst[row++] = i;
             }
-            int tileIdx = ram[tileLoc] & 0xFF;
-            int[] paletteIndexes = tileToPaletteIdx[tileIdx]; //64 pixel, a palette index for each
-            int paletteIdx = ram[tileLoc + SystemBus.PALETTE_RAM_OFFSET] & 0x3F; // 64 palettes
-            int[] paletteCromIdx = paletteToColorsIdx[paletteIdx];
-            for (int j = 0; j < rgbPixels.length; j++) {
-                rgbPixels[j] = colors[paletteCromIdx[paletteIndexes[j]]].getRGB();
-            }
-            int startIdx = tileLineStartPx + lineAddrPx;
-            for (int j = 0; j < rgbPixels.length; j += TILE_W_PX) {
-                System.arraycopy(rgbPixels, j, render, startIdx, 8);
-                startIdx += NUM_TILE_W_SCREEN * 8;
+            if (tileMapper[i] < 0) {
+                continue;
             }
             if ((i + 1) % NUM_TILE_W_SCREEN == 0) {
-                tileLineStartPx += 8 * 8 * NUM_TILE_W_SCREEN; //skip 8 lines
+                tileLineStartPx += TILE_H_PX * SCREEN_LINE_PX; //skip 8 lines
                 lineAddrPx = 0;
             } else {
-                lineAddrPx += 8;
+                lineAddrPx += TILE_W_PX;
             }
         }
+        while (row <= NUM_TILE_H_SCREEN) {
+            tileRowFirst[row++] = tileMapper.length;
+        }
     }
 
     static class SpriteContext {
         int number, flipx, flipy, xpos, ypos, palette;
+        //screen position and visible columns, set by prepareFrame
+        int left, top, firstPx, lastPx;
+    }
+
+    //renders strips [from, to), splitting in halves
+    @SuppressWarnings("serial")
+    private class StripRender extends RecursiveAction {
+        private final byte[] render;
+        private final int from, to, strips;
+
+        StripRender(byte[] render, int from, int to, int strips) {
+            this.render = render;
+            this.from = from;
+            this.to = to;
+            this.strips = strips;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                renderStrip(render, from * NUM_TILE_H_SCREEN / strips, to * NUM_TILE_H_SCREEN / strips);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new StripRender(render, from, mid, strips), new StripRender(render, mid, to, strips));
+        }
+    }
+
+    //a sprite pixels and, for each row, the runs of opaque pixels
+    static class SpriteSpans {
+        private static final int TRANSPARENT_RGB = 0; //black, no alpha
+
+        final byte[] pixels;
+        //start, length pairs; the pairs of row n are [rowSpans[n], rowSpans[n + 1])
+        final int[] spans;
+        final int[] rowSpans = new int[SPRITE_H_PX + 1];
+
+        SpriteSpans(byte[] pixels, int[] cromRgb) {
+            this.pixels = pixels;
+            int[] tmp = new int[SPRITE_PX];
+            int len = 0;
+            for (int row = 0; row < SPRITE_H_PX; row++) {
+                rowSpans[row] = len;
+                int rowPx = row * SPRITE_W_PX;
+                int x = 0;
+                while (x < SPRITE_W_PX) {
+                    if (cromRgb[pixels[rowPx + x]] == TRANSPARENT_RGB) {
+                        x++;
+                        continue;
+                    }
+                    int start = x;
+                    while (x < SPRITE_W_PX && cromRgb[pixels[rowPx + x]] != TRANSPARENT_RGB) {
+                        x++;
+                    }
+                    tmp[len++] = start;
+                    tmp[len++] = x - start;
+                }
+            }
+            rowSpans[SPRITE_H_PX] = len;
+            spans = Arrays.copyOf(tmp, len);
+        }
     }
 
     public Color[] getColors() {
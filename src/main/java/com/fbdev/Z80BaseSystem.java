@@ -22,20 +22,28 @@ package com.fbdev;
 import com.fbdev.bus.SystemBus;
 import com.fbdev.helios.BaseStateHandler;
 import com.fbdev.helios.BaseSystem;
+import com.fbdev.helios.EventScheduler;
+import com.fbdev.helios.input.JoypadProvider;
 import com.fbdev.helios.model.DisplayWindow;
 import com.fbdev.helios.model.SystemProvider;
 import com.fbdev.helios.sound.SoundProvider;
+import com.fbdev.helios.util.Telemetry;
 import com.fbdev.helios.z80.Z80CoreWrapper;
 import com.fbdev.helios.z80.Z80Provider;
+import com.fbdev.helios.z80.jit.Z80JitWrapper;
 import com.fbdev.input.PacManPad;
 import com.fbdev.sound.AbstractSoundManager;
 import com.fbdev.sound.Sound;
 import com.fbdev.state.HeliosPmStateHandler;
+import com.fbdev.state.PmSnapshot;
 import com.fbdev.state.PmStateHandler;
 import com.fbdev.util.RomHelper;
+import com.fbdev.util.Z80Assets;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import z80core.Z80State;
 
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Random;
@@ -46,9 +54,16 @@ public class Z80BaseSystem extends BaseSystem<SystemBus, HeliosPmStateHandler> {
     private static final int FRAMES_HZ = 60;
     private static final int Z80_CLOCK_HZ = 3_072_000;
     private static final int Z80_CYCLES_PER_FRAME = Z80_CLOCK_HZ / FRAMES_HZ;
+    //z80 backend: core (default) or jit, see helios.properties
+    private static final String Z80_CORE = System.getProperty("z80.core", "core");
     protected Z80Provider z80;
     private int nextZ80Cycle = counter;
     private RomHelper romHelper;
+    private final EventScheduler scheduler = new EventScheduler();
+    private final Z80State snapshotZ80State = new Z80State();
+
+    //bytes written by saveSnapshot
+    public static final int SNAPSHOT_SIZE = PmSnapshot.SIZE + Integer.BYTES;
 
     protected Z80BaseSystem(DisplayWindow emuFrame) {
         super(emuFrame);
@@ -58,6 +73,55 @@ public class Z80BaseSystem extends BaseSystem<SystemBus, HeliosPmStateHandler> {
         return new Z80BaseSystem(emuFrame);
     }
 
+    /**
+     * A system ready to run, driven by the caller via runFrame(): no rom thread, no audio output,
+     * its own telemetry. Used to run many systems side by side.
+     */
+    public static Z80BaseSystem createInstance(RomHelper romHelper, DisplayWindow emuFrame) {
+        Z80BaseSystem system = new Z80BaseSystem(emuFrame);
+        system.init();
+        system.romHelper = romHelper;
+        system.romName = romHelper.getRomSetName();
+        system.telemetry = Telemetry.createInstance();
+        system.initDevices();
+        system.initFrameLoop();
+        return system;
+    }
+
+    /**
+     * A copy of this system at the current frame boundary, see fork(DisplayWindow)
+     */
+    public Z80BaseSystem fork() {
+        return fork(DisplayWindow.HEADLESS_INSTANCE);
+    }
+
+    /**
+     * A copy of this system at the current frame boundary, runs via runFrame() and renders to emuFrame.
+     * Copies cpu registers, ram, io and sprite registers and the pad state; the rom, the decoded
+     * graphics and the decoded ROM code (jit blocks) are shared.
+     * Call it between two runFrame(), on the thread running this system.
+     */
+    public Z80BaseSystem fork(DisplayWindow emuFrame) {
+        Z80BaseSystem fork = new Z80BaseSystem(emuFrame);
+        fork.init();
+        fork.romHelper = romHelper;
+        fork.romName = romName;
+        fork.telemetry = Telemetry.createInstance();
+        //no resetAfterRomLoad, the state comes from this system
+        fork.bus.init(romHelper);
+        fork.z80 = createZ80(fork.bus, romHelper);
+        Video video = new Video(romHelper, fork.bus, fork.joypad);
+        video.copyCachesFrom((Video) vdp);
+        fork.vdp = video;
+        fork.bus.attach(video);
+        fork.z80.loadZ80State(z80.getZ80State());
+        fork.nextZ80Cycle = nextZ80Cycle;
+        fork.bus.copyStateFrom(bus);
+        ((PacManPad) fork.joypad).copyStateFrom((PacManPad) joypad);
+        fork.initFrameLoop();
+        return fork;
+    }
+
     @Override
     public void init() {
         joypad = new PacManPad();
@@ -84,29 +148,29 @@ public class Z80BaseSystem extends BaseSystem<SystemBus, HeliosPmStateHandler> {
     @Override
     protected void loop() {
         LOG.info("Starting game loop");
-        targetNs = (long) (Duration.ofSeconds(1).toNanos() / FRAMES_HZ); //60hz
+        initFrameLoop();
         int val = rnd.nextInt(300);
         boolean fs = true;
         do {
             try {
-                if (counter == nextZ80Cycle) {
-                    int cycleDelay = z80.executeInstruction();
-                    cycleDelay = Math.max(1, cycleDelay);
-                    nextZ80Cycle += cycleDelay;
-                }
-                if (counter >= Z80_CYCLES_PER_FRAME) {
-                    newFrame();
+                //run the z80 up to the next event, instructions starting on the event cycle belong to this frame
+                nextZ80Cycle += z80.executeBurst(scheduler.nextCycle() - nextZ80Cycle);
+                switch (scheduler.pop()) {
+                    case FRAME_END:
+                        newFrame();
 //                    if(++frameCounter == val){
 //                        frameCounter = 0;
 //                        val = rnd.nextInt(300);
 ////                        emuFrame.setFullScreen(fs);
 //                        fs = !fs;
 //                    }
-                    if (runningRomFuture.isDone()) {
                         break;
-                    }
+                    default:
+                        break;
+                }
+                if (runningRomFuture.isDone()) {
+                    break;
                 }
-                counter++;
             } catch (Exception e) {
                 LOG.error("Error main cycle", e);
                 break;
@@ -115,9 +179,54 @@ public class Z80BaseSystem extends BaseSystem<SystemBus, HeliosPmStateHandler> {
         LOG.info("Exiting rom thread loop");
     }
 
+    private void initFrameLoop() {
+        targetNs = (long) (Duration.ofSeconds(1).toNanos() / FRAMES_HZ); //60hz
+        scheduler.clear();
+        scheduler.schedule(EventScheduler.EventType.FRAME_END, Z80_CYCLES_PER_FRAME);
+    }
+
+    /**
+     * Runs the system up to the end of the current frame, on the calling thread
+     */
+    public void runFrame() {
+        EventScheduler.EventType event;
+        do {
+            nextZ80Cycle += z80.executeBurst(scheduler.nextCycle() - nextZ80Cycle);
+            event = scheduler.pop();
+        } while (event != EventScheduler.EventType.FRAME_END);
+        newFrame();
+    }
+
+    /**
+     * Writes SNAPSHOT_SIZE bytes with the state at the current frame boundary to buf, from its position.
+     * No allocation: call it between two runFrame(), as often as every frame.
+     */
+    public void saveSnapshot(ByteBuffer buf) {
+        PmSnapshot.save(z80, bus, snapshotZ80State, buf);
+        buf.putInt(nextZ80Cycle);
+    }
+
+    /**
+     * Restores a state written by saveSnapshot, from the position of buf. The pad keeps the current input.
+     */
+    public void loadSnapshot(ByteBuffer buf) {
+        PmSnapshot.load(z80, bus, snapshotZ80State, buf);
+        nextZ80Cycle = buf.getInt();
+    }
+
+    public SystemBus getBus() {
+        return bus;
+    }
+
+    public JoypadProvider getJoypad() {
+        return joypad;
+    }
+
     @Override
     protected void newFrame() {
         nextZ80Cycle -= Z80_CYCLES_PER_FRAME;
+        scheduler.rebase(Z80_CYCLES_PER_FRAME);
+        scheduler.schedule(EventScheduler.EventType.FRAME_END, Z80_CYCLES_PER_FRAME);
         if (bus.isIntEnabled()) {
             z80.interrupt(true);
         }
@@ -128,15 +237,30 @@ public class Z80BaseSystem extends BaseSystem<SystemBus, HeliosPmStateHandler> {
 
     @Override
     protected void initAfterRomLoad() {
-        bus.init(romHelper);
-        z80 = Z80CoreWrapper.createInstance(bus);
         Sound pmSound = new Sound(romHelper, bus);
         sound = AbstractSoundManager.createSoundProvider(pmSound);
-        vdp = new Video(romHelper, bus.getRam(), joypad);
+        initDevices();
+    }
+
+    private void initDevices() {
+        bus.init(romHelper);
+        z80 = createZ80(bus, romHelper);
+        vdp = new Video(romHelper, bus, joypad);
         bus.attach(vdp);
         resetAfterRomLoad();
     }
 
+    //the decoded ROM code is shared by all the systems running the same romSet
+    private static Z80Provider createZ80(SystemBus bus, RomHelper romHelper) {
+        switch (Z80_CORE) {
+            case "jit":
+                return Z80JitWrapper.createInstance(bus, SystemBus.ROM_LENGTH,
+                        Z80Assets.of(romHelper).getRecompiler());
+            default:
+                return Z80CoreWrapper.createInstance(bus);
+        }
+    }
+
     @Override
     public void handleNewRom(Path file) {
         romHelper = RomHelper.createInstance(file);
@@ -24,12 +24,14 @@ import com.fbdev.helios.input.JoypadProvider;
 import com.fbdev.helios.model.BaseBusProvider;
 import com.fbdev.helios.model.Device;
 import com.fbdev.helios.model.IoProvider;
-import com.fbdev.helios.util.Size;
+import com.fbdev.helios.model.MemoryMap;
 import com.fbdev.input.PacManPad;
 import com.fbdev.util.RomHelper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.ByteBuffer;
+
 /**
  * Federico Berti
  * <p>
@@ -50,14 +52,26 @@ public class SystemBus implements BaseBusProvider, IoProvider {
     private final static int IO_START = 0x5000;
     private final static int IO_END = IO_START + 0x100;
 
-    private final static int IO_SPRITE_START = 0x5060;
+    //ram, io registers, interrupt vector
+    public final static int SNAPSHOT_LEN = RAM_END - RAM_START + IO_END - IO_START + Integer.BYTES;
+
+    public final static int IO_SPRITE_START = 0x5060;
     private final static int IO_SPRITE_END = 0x5070;
 
+    //A15 is not connected
+    private final static int ADDRESS_MASK = 0x7FFF;
+    private final static int MIRROR_OFFSET = ADDRESS_MASK + 1;
+
     public final static int PALETTE_RAM_OFFSET = 0x400;
+    //tile RAM followed by palette RAM
+    public final static int VIDEO_RAM_LENGTH = 2 * PALETTE_RAM_OFFSET;
 
     private boolean enableInt = false, soundEnabled = false;
 
     private byte[] rom, ram, ioReg;
+    //one bit per tile, set when its tile or palette RAM byte changes
+    private final long[] tileDirty = new long[PALETTE_RAM_OFFSET / Long.SIZE];
+    private final MemoryMap memoryMap = new MemoryMap();
     private int intHandlerLowByte = 0;
     private PacManPad joypadProvider;
     private BaseVdpProvider vdpProvider;
@@ -75,14 +89,31 @@ public class SystemBus implements BaseBusProvider, IoProvider {
     private final static int dipSwitchSettings =
             Integer.parseInt(System.getProperty("pacman.dip.switch.value", String.valueOf(defaultDipSwitchSettings)));
 
+    static {
+        LOG.info("DipSwitch settings: {}", Integer.toHexString(dipSwitchSettings));
+    }
+
     public SystemBus() {
         this.ram = new byte[RAM_END - RAM_START];
         this.ioReg = new byte[IO_END - IO_START];
-        LOG.info("DipSwitch settings: {}", Integer.toHexString(dipSwitchSettings));
+        for (int mirror = 0; mirror <= MIRROR_OFFSET; mirror += MIRROR_OFFSET) {
+            memoryMap.mapReadWrite(mirror + RAM_START, mirror + RAM_END, ram, 0);
+            //video and sprite RAM writes go through the bus, see write()
+            memoryMap.unmapWrite(mirror + RAM_START, mirror + RAM_START + VIDEO_RAM_LENGTH);
+            memoryMap.unmapWrite(mirror + (SPRITE_RAM_START & ~MemoryMap.PAGE_MASK), mirror + RAM_END);
+        }
     }
 
     public void init(RomHelper romHelper) {
         this.rom = romHelper.getRom();
+        for (int mirror = 0; mirror <= MIRROR_OFFSET; mirror += MIRROR_OFFSET) {
+            memoryMap.mapRead(mirror + ROM_START, mirror + ROM_LENGTH, rom, 0);
+        }
+    }
+
+    @Override
+    public MemoryMap getMemoryMap() {
+        return memoryMap;
     }
 
     @Override
@@ -102,25 +133,21 @@ public class SystemBus implements BaseBusProvider, IoProvider {
     }
 
     @Override
-    public long read(long addressL, Size size) {
-        int address = (int) addressL & 0x7FFF;
-        if (size != Size.BYTE) {
-            LOG.error("Invalid read {}, {}", Long.toHexString(address), size);
-            throw new RuntimeException();
-        }
-        if (address < ROM_LENGTH) {
-            return rom[address];
-        } else if (address >= RAM_START && address < RAM_END) {
-            return ram[address - RAM_START];
+    public int read8(int address) {
+        address &= ADDRESS_MASK;
+        int page = address >>> MemoryMap.PAGE_SHIFT;
+        byte[] mem = memoryMap.readPages[page];
+        if (mem != null) {
+            return mem[memoryMap.readOffsets[page] + (address & MemoryMap.PAGE_MASK)] & 0xFF;
         } else if (address >= IO_START && address < IO_END) {
-            return readIoHandler(address, size);
+            return readIoHandler(address) & 0xFF;
         } else {
-            LOG.error("Invalid read {}, {}", Long.toHexString(address), size);
+            LOG.error("Invalid read {}", Long.toHexString(address));
             throw new RuntimeException();
         }
     }
 
-    private int readIoHandler(int address, Size size) {
+    private int readIoHandler(int address) {
         address &= 0xFF;
         if (address < 0x40) {
             return joypadProvider.getIn0();
@@ -130,30 +157,35 @@ public class SystemBus implements BaseBusProvider, IoProvider {
 //            LOG.info("Read DIP switch settings port: {}", size);
             return defaultDipSwitchSettings;
         } else {
-            LOG.warn("Unsupported IO read {}, {}", Long.toHexString(address), size);
+            LOG.warn("Unsupported IO read {}", Long.toHexString(address));
             throw new RuntimeException();
         }
     }
 
     @Override
-    public void write(long addressL, long dataL, Size size) {
-        if (size != Size.BYTE) {
-            LOG.error("Invalid write at {}, {} {}", Long.toHexString(addressL),
-                    Long.toHexString(dataL), size);
-            throw new RuntimeException();
-        }
-        int address = (int) addressL & 0x7FFF;
-        byte data = (byte) (dataL & 0xFF);
-        if (address >= RAM_START && address < RAM_END) {
-            if (address >= SPRITE_RAM_START) {
-                vdpProvider.updateSpriteContext(address, data & 0xFF);
+    public void write8(int address, int dataI) {
+        address &= ADDRESS_MASK;
+        byte data = (byte) dataI;
+        int page = address >>> MemoryMap.PAGE_SHIFT;
+        byte[] mem = memoryMap.writePages[page];
+        if (mem != null) {
+            mem[memoryMap.writeOffsets[page] + (address & MemoryMap.PAGE_MASK)] = data;
+        } else if (address >= RAM_START && address < RAM_END) {
+            int offset = address - RAM_START;
+            if (offset < VIDEO_RAM_LENGTH) {
+                if (ram[offset] != data) {
+                    int tile = offset & (PALETTE_RAM_OFFSET - 1);
+                    tileDirty[tile >> 6] |= 1L << tile;
+                }
+            } else if (address >= SPRITE_RAM_START && ram[offset] != data) {
+                vdpProvider.markSpriteDirty(address);
             }
-            ram[address - RAM_START] = data;
+            ram[offset] = data;
         } else if (address >= IO_START && address < IO_END) {
-            writeIoHandler(address, data, size);
+            writeIoHandler(address, data);
         } else {
-            LOG.error("Invalid write at {}, {} {}", Long.toHexString(address),
-                    Long.toHexString(data), size);
+            LOG.error("Invalid write at {}, {}", Long.toHexString(address),
+                    Long.toHexString(data & 0xFF));
             throw new RuntimeException();
         }
     }
@@ -165,8 +197,9 @@ public class SystemBus implements BaseBusProvider, IoProvider {
 //            case 5: LOG.debug("Write Player 2 start light : {}", Integer.toHexString(data));
 //            case 6: LOG.debug("Write Coin lockout : {}", Integer.toHexString(data));
 //            case 7: LOG.debug("Write Coin counter : {}", Integer.toHexString(data));
-    private void writeIoHandler(int address, byte data, Size size) {
+    private void writeIoHandler(int address, byte data) {
         address &= 0xFF;
+        boolean changed = ioReg[address] != data;
         ioReg[address] = data;
         switch (address) {
             case 0:
@@ -179,11 +212,13 @@ public class SystemBus implements BaseBusProvider, IoProvider {
         }
         //address >= 0x40 && address < 0x60: sound registers
         //address >= 0xC0: Watchdog reset
-        if (address >= 0x60 && address < 0x70) {
-            vdpProvider.updateSpriteContext(address, data & 0xFF);
+        if (address >= (IO_SPRITE_START & 0xFF) && address < (IO_SPRITE_END & 0xFF)) {
+            if (changed) {
+                vdpProvider.markSpriteDirty(address);
+            }
         } else if (address >= 0x70 && address < 0xC0) { //getting writes in the 0x70 - 0x80 range
-            LOG.warn("Unsupported IO write at 50{}, {} {}", Long.toHexString(address),
-                    Long.toHexString(data), size);
+            LOG.warn("Unsupported IO write at 50{}, {}", Long.toHexString(address),
+                    Long.toHexString(data));
         }
     }
 
@@ -236,19 +271,66 @@ public class SystemBus implements BaseBusProvider, IoProvider {
         return ioReg;
     }
 
+    public long[] getTileDirty() {
+        return tileDirty;
+    }
+
+    /**
+     * Copies ram, io registers and latches of another bus, the rom is not copied.
+     * Same as loading a saveState, without the side-effects logging.
+     */
+    public void copyStateFrom(SystemBus from) {
+        System.arraycopy(from.ram, 0, ram, 0, ram.length);
+        System.arraycopy(from.ioReg, 0, ioReg, 0, ioReg.length);
+        enableInt = from.enableInt;
+        soundEnabled = from.soundEnabled;
+        intHandlerLowByte = from.intHandlerLowByte;
+        vdpProvider.reload();
+    }
+
+
+    /**
+     * Writes ram, io registers and the interrupt vector to buf, see loadSnapshot
+     */
+    public void saveSnapshot(ByteBuffer buf) {
+        buf.put(ram).put(ioReg).putInt(intHandlerLowByte);
+    }
+
+    /**
+     * Reads what saveSnapshot wrote, the tiles and sprites that differ are marked dirty as a bus write would do
+     */
+    public void loadSnapshot(ByteBuffer buf) {
+        int pos = buf.position();
+        for (int i = 0; i < VIDEO_RAM_LENGTH; i++) {
+            if (ram[i] != buf.get(pos + i)) {
+                int tile = i & (PALETTE_RAM_OFFSET - 1);
+                tileDirty[tile >> 6] |= 1L << tile;
+            }
+        }
+        for (int i = SPRITE_RAM_START - RAM_START; i < ram.length; i++) {
+            if (ram[i] != buf.get(pos + i)) {
+                vdpProvider.markSpriteDirty(RAM_START + i);
+            }
+        }
+        int ioPos = pos + ram.length;
+        for (int i = IO_SPRITE_START - IO_START; i < IO_SPRITE_END - IO_START; i++) {
+            if (ioReg[i] != buf.get(ioPos + i)) {
+                vdpProvider.markSpriteDirty(IO_START + i);
+            }
+        }
+        buf.get(ram).get(ioReg);
+        intHandlerLowByte = buf.getInt();
+        enableInt = ioReg[0] != 0;
+        soundEnabled = ioReg[1] != 0;
+    }
 
     @Override
     public void init() {
         //after saveState loading, trigger side-effects
-        writeIoHandler(0, ioReg[0], Size.BYTE); //enableInt
-        writeIoHandler(1, ioReg[1], Size.BYTE); //soundEnabled
+        writeIoHandler(0, ioReg[0]); //enableInt
+        writeIoHandler(1, ioReg[1]); //soundEnabled
 
-        //update vdp
-        for (int i = IO_SPRITE_START; i < IO_SPRITE_END; i++) {
-            vdpProvider.updateSpriteContext(i, ioReg[i & 0xFF]);
-        }
-        for (int i = SPRITE_RAM_START; i < RAM_END; i++) {
-            vdpProvider.updateSpriteContext(i, ram[i & 0xFFF]);
-        }
+        //sprites are decoded from ram and ioReg at render time, tiles are redrawn
+        vdpProvider.reload();
     }
 }
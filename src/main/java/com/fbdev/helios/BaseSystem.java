@@ -50,9 +50,27 @@ public abstract class BaseSystem<BUS extends BaseBusProvider, STH extends BaseSt
     private static final long DRIFT_THRESHOLD_NS = Util.MILLI_IN_NS / 10;
     //frame pacing stuff
     private static final boolean fullThrottle;
+    //don't present a frame the vdp reports as unchanged, at most MAX_REPEATED_FRAMES in a row
+    private static final boolean skipUnchangedFrames;
+    private static final int MAX_REPEATED_FRAMES = 30;
+    //skip rendering up to maxFrameskip frames in a row when a frame takes longer than targetNs
+    private static final boolean autoFrameskip;
+    private static final int maxFrameskip;
+    //turbo renders every N emulated frames, 0: at most once every targetNs
+    private static final int turboRenderEvery;
 
     static {
         fullThrottle = Boolean.parseBoolean(System.getProperty("helios.fullSpeed", "false"));
+        skipUnchangedFrames = Boolean.parseBoolean(System.getProperty("helios.skip.unchanged.frames", "false"));
+        if (skipUnchangedFrames) {
+            LOG.info("Skip unchanged frames, present at least every {} frames", MAX_REPEATED_FRAMES);
+        }
+        autoFrameskip = Boolean.parseBoolean(System.getProperty("helios.frameskip.auto", "false"));
+        maxFrameskip = Math.max(0, Integer.parseInt(System.getProperty("helios.frameskip.max", "4")));
+        if (autoFrameskip) {
+            LOG.info("Auto frameskip, max frames: {}", maxFrameskip);
+        }
+        turboRenderEvery = Math.max(0, Integer.parseInt(System.getProperty("helios.turbo.render.every", "0")));
     }
 
     protected JoypadProvider joypad;
@@ -77,6 +95,20 @@ public abstract class BaseSystem<BUS extends BaseBusProvider, STH extends BaseSt
     private Optional<String> stats = Optional.empty();
     final Consumer<String> statsConsumer = st -> stats = Optional.of(st);
     private double lastFps = 0;
+    //one byte per pixel, when the vdp supports it
+    private byte[] indexedRender = new byte[0];
+    //frames not presented since the last one that was, -1 when the screen needs a frame
+    private int repeatedFrames = -1;
+    //auto frameskip: frames skipped after each rendered one, frames left to skip,
+    //frames and busy time of the current cycle: the skipped frames and the rendered one after them
+    private int frameskipLevel, framesToSkip, frameskipFrames;
+    private long frameskipBusyNs;
+    //turbo: unthrottled, sound muted, only some frames rendered
+    private volatile boolean turbo = false;
+    private boolean throttled = !fullThrottle;
+    private boolean muteBeforeTurbo;
+    private int turboFrames;
+    private long turboStartNs, turboRenderNs;
     private final CyclicBarrier pauseBarrier = new CyclicBarrier(2);
     protected Telemetry telemetry = Telemetry.getInstance();
 
@@ -121,6 +153,9 @@ public abstract class BaseSystem<BUS extends BaseBusProvider, STH extends BaseSt
             case TOGGLE_MUTE:
                 sound.setEnabled(!sound.isMute());
                 break;
+            case TOGGLE_THROTTLE:
+                handleTurbo();
+                break;
             case CLOSE_APP:
                 handleCloseApp();
                 break;
@@ -211,7 +246,7 @@ public abstract class BaseSystem<BUS extends BaseBusProvider, STH extends BaseSt
 
     protected final long syncCycle(long startCycle) {
         long now = System.nanoTime();
-        if (fullThrottle) {
+        if (!throttled || turbo) {
             return now;
         }
         long driftDeltaNs = 0;
@@ -242,6 +277,7 @@ public abstract class BaseSystem<BUS extends BaseBusProvider, STH extends BaseSt
             }
             LOG.info("Rom thread cancel");
             emuFrame.resetScreen();
+            repeatedFrames = -1;
             telemetry.reset();
             sound.reset();
 //            bus.closeRom();
@@ -251,9 +287,18 @@ public abstract class BaseSystem<BUS extends BaseBusProvider, STH extends BaseSt
 
     protected void newFrame() {
         long tstamp = System.nanoTime();
-        vdp.renderScreenDataLinear(emuFrame.acquireRender());
-        emuFrame.renderScreen(getStats(startCycle), VideoMode.H28_V36);
+        boolean renderRequired = emuFrame.isRenderRequired();
+        boolean renderSkipped = isRenderSkipped(renderRequired, tstamp);
+        if (renderSkipped) {
+            emuFrame.repeatFrame(getStats(startCycle), VideoMode.H28_V36);
+        } else {
+            renderFrame();
+        }
         long startWaitNs = System.nanoTime();
+        //turbo and a window that needs no rendering skip frames of their own, not counted as frameskip
+        if (autoFrameskip && !turbo && renderRequired) {
+            updateFrameskip(startWaitNs - startCycle, renderSkipped);
+        }
         elapsedWaitNs = syncCycle(startCycle) - startWaitNs;
         processSaveState();
         pauseAndWait();
@@ -261,11 +306,96 @@ public abstract class BaseSystem<BUS extends BaseBusProvider, STH extends BaseSt
         counter = 0;
         startCycle = System.nanoTime();
         frameProcessingDelayNs = startCycle - tstamp - elapsedWaitNs;
-        futureDoneFlag = runningRomFuture.isDone();
+        futureDoneFlag = runningRomFuture != null && runningRomFuture.isDone();
         handleSoftReset();
 //        LOG.info("{}, {}", elapsedWaitNs, frameProcessingDelayNs);
     }
 
+    private void renderFrame() {
+        if (skipUnchangedFrames && repeatedFrames >= 0 && repeatedFrames < MAX_REPEATED_FRAMES
+                && !vdp.isFrameChanged()) {
+            repeatedFrames++;
+            emuFrame.repeatFrame(getStats(startCycle), VideoMode.H28_V36);
+            return;
+        }
+        repeatedFrames = 0;
+        if (!(vdp instanceof IndexedVdpProvider)) {
+            vdp.renderScreenDataLinear(emuFrame.acquireRender());
+            emuFrame.renderScreen(getStats(startCycle), VideoMode.H28_V36);
+            return;
+        }
+        VideoMode videoMode = vdp.getVideoMode();
+        int len = videoMode.getPixelW() * videoMode.getPixelH();
+        if (indexedRender.length != len) {
+            indexedRender = new byte[len];
+        }
+        IndexedVdpProvider indexedVdp = (IndexedVdpProvider) vdp;
+        indexedVdp.renderScreenDataIndexed(indexedRender);
+        emuFrame.renderScreenIndexed(indexedRender, indexedVdp.getIndexedColors(), getStats(startCycle),
+                VideoMode.H28_V36);
+    }
+
+    private boolean isRenderSkipped(boolean renderRequired, long nowNs) {
+        if (!renderRequired) {
+            return true;
+        }
+        if (turbo) {
+            return isTurboRenderSkipped(nowNs);
+        }
+        if (framesToSkip > 0) {
+            framesToSkip--;
+            telemetry.addSkippedFrame();
+            return true;
+        }
+        return false;
+    }
+
+    //renders every turboRenderEvery frames or at most once every targetNs, shows the speed every second
+    private boolean isTurboRenderSkipped(long nowNs) {
+        if (turboStartNs == 0) {
+            turboStartNs = nowNs;
+            turboFrames = 0;
+        }
+        turboFrames++;
+        long elapsedNs = nowNs - turboStartNs;
+        if (elapsedNs >= Util.SECOND_IN_NS) {
+            emuFrame.showInfo(String.format("Turbo x%.1f", turboFrames * (double) targetNs / elapsedNs));
+            turboStartNs = nowNs;
+            turboFrames = 0;
+        }
+        boolean render = turboRenderEvery > 0 ? turboFrames % turboRenderEvery == 0 : nowNs - turboRenderNs >= targetNs;
+        if (render) {
+            turboRenderNs = nowNs;
+        }
+        return !render;
+    }
+
+    //busyNs: emulation plus rendering, the time to the frame sync.
+    //Once per cycle, on the rendered frame: one more frame is skipped when the average of the cycle
+    //is over budget and one less when it is below 3/4 of it.
+    private void updateFrameskip(long busyNs, boolean renderSkipped) {
+        frameskipBusyNs += busyNs;
+        frameskipFrames++;
+        if (renderSkipped) {
+            return;
+        }
+        long avgNs = frameskipBusyNs / frameskipFrames;
+        if (avgNs > targetNs) {
+            frameskipLevel = Math.min(maxFrameskip, frameskipLevel + 1);
+        } else if (frameskipLevel > 0 && avgNs < targetNs * 3 / 4) {
+            frameskipLevel--;
+        }
+        telemetry.addSample("frameskip", frameskipLevel);
+        framesToSkip = frameskipLevel;
+        frameskipBusyNs = 0;
+        frameskipFrames = 0;
+    }
+
+    //false: frames run as fast as possible, helios.fullSpeed sets the default
+    public void setThrottled(boolean throttled) {
+        this.throttled = throttled;
+    }
+
     protected Optional<String> getStats(long nowNs) {
         lastFps = (1.0 * Util.SECOND_IN_NS) / ((nowNs - startNs));
         telemetry.newFrame(lastFps, driftNs / 1000d).ifPresent(statsConsumer);
@@ -273,10 +403,22 @@ public abstract class BaseSystem<BUS extends BaseBusProvider, STH extends BaseSt
         return stats;
     }
 
+    private void handleTurbo() {
+        turbo = !turbo;
+        if (turbo) {
+            turboStartNs = 0;
+            muteBeforeTurbo = sound.isMute();
+            sound.setEnabled(true);
+        } else {
+            sound.setEnabled(muteBeforeTurbo);
+        }
+        LOG.info("Turbo: {}", turbo);
+    }
+
     private void handlePause() {
         boolean isPausing = pauseFlag;
         pauseFlag = !pauseFlag;
-        sound.setEnabled(pauseFlag);
+        sound.setEnabled(pauseFlag || turbo);
         if (isPausing) {
             Util.waitOnBarrier(pauseBarrier);
         }
@@ -291,6 +433,9 @@ public abstract class BaseSystem<BUS extends BaseBusProvider, STH extends BaseSt
     protected void resetAfterRomLoad() {
         joypad.init();
         bus.init();
+        repeatedFrames = -1;
+        frameskipLevel = framesToSkip = frameskipFrames = 0;
+        frameskipBusyNs = 0;
         futureDoneFlag = false;
     }
 
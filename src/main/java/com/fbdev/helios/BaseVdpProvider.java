@@ -36,7 +36,13 @@ public interface BaseVdpProvider extends Device {
 
     void renderScreenDataLinear(int[] render);
 
-    void updateSpriteContext(int address, int value);
+    //a sprite register has changed, the vdp reads the new value when rendering
+    void markSpriteDirty(int address);
+
+    //false when the next frame would be the same as the last rendered one
+    default boolean isFrameChanged() {
+        return true;
+    }
 
     //after loading a state
     default void reload() {
@@ -0,0 +1,97 @@
+/*
+ * EventScheduler
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 17/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * EventScheduler
+ * <p>
+ * Small queue of timed events, ordered by cycle, the cpu runs in bursts up to the next event.
+ * Events scheduled at the same cycle fire in insertion order.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class EventScheduler {
+
+    private final static Logger LOG = LogManager.getLogger(EventScheduler.class.getSimpleName());
+
+    public static final int NO_EVENT = Integer.MAX_VALUE;
+    private static final int MAX_EVENTS = 8;
+
+    private final int[] cycles = new int[MAX_EVENTS];
+    private final EventType[] types = new EventType[MAX_EVENTS];
+    private int size = 0;
+
+    public void schedule(EventType type, int cycle) {
+        if (size == MAX_EVENTS) {
+            LOG.error("Event queue full, dropping: {} at cycle {}", type, cycle);
+            return;
+        }
+        int pos = size;
+        while (pos > 0 && cycles[pos - 1] > cycle) {
+            cycles[pos] = cycles[pos - 1];
+            types[pos] = types[pos - 1];
+            pos--;
+        }
+        cycles[pos] = cycle;
+        types[pos] = type;
+        size++;
+    }
+
+    public int nextCycle() {
+        return size > 0 ? cycles[0] : NO_EVENT;
+    }
+
+    public EventType pop() {
+        if (size == 0) {
+            return EventType.NONE;
+        }
+        EventType type = types[0];
+        size--;
+        System.arraycopy(cycles, 1, cycles, 0, size);
+        System.arraycopy(types, 1, types, 0, size);
+        types[size] = null;
+        return type;
+    }
+
+    //events are frame relative, move the pending ones back by a frame
+    public void rebase(int frameCycles) {
+        for (int i = 0; i < size; i++) {
+            cycles[i] -= frameCycles;
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            types[i] = null;
+        }
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public enum EventType {NONE, FRAME_END}
+}
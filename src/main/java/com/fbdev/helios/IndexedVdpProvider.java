@@ -0,0 +1,38 @@
+/*
+ * IndexedVdpProvider
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios;
+
+/**
+ * IndexedVdpProvider
+ * <p>
+ * A vdp that can also render one byte per pixel, an index in getIndexedColors();
+ * the conversion to RGB is left to the caller.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public interface IndexedVdpProvider extends BaseVdpProvider {
+
+    void renderScreenDataIndexed(byte[] render);
+
+    //RGB value of each index
+    int[] getIndexedColors();
+}
@@ -26,6 +26,7 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 import static com.fbdev.helios.input.JoypadProvider.JoypadAction.PRESSED;
@@ -79,4 +80,16 @@ public abstract class BasePadAdapter implements JoypadProvider {
     public String getState(PlayerNumber number) {
         return getMap(number).toString();
     }
+
+    /**
+     * Copies the pad types, the buttons state and the values computed from it, no init() needed
+     */
+    public void copyStateFrom(BasePadAdapter from) {
+        p1Type = from.p1Type;
+        p2Type = from.p2Type;
+        stateMap1 = new HashMap<>(from.stateMap1);
+        stateMap2 = new HashMap<>(from.stateMap2);
+        value1 = from.value1;
+        value2 = from.value2;
+    }
 }
@@ -23,9 +23,26 @@ import com.fbdev.helios.util.Size;
 
 public interface BaseBusProvider extends Device {
 
-    long read(long address, Size size);
+    //8 bit data bus: unsigned byte in, unsigned byte out
+    int read8(int address);
 
-    void write(long address, long data, Size size);
+    void write8(int address, int data);
+
+    //adapters, only Size.BYTE is supported
+    default long read(long address, Size size) {
+        if (size != Size.BYTE) {
+            throw new RuntimeException("Invalid read " + Long.toHexString(address) + ", " + size);
+        }
+        return read8((int) address);
+    }
+
+    default void write(long address, long data, Size size) {
+        if (size != Size.BYTE) {
+            throw new RuntimeException("Invalid write at " + Long.toHexString(address) + ", " +
+                    Long.toHexString(data) + " " + size);
+        }
+        write8((int) address, (int) data & 0xFF);
+    }
 
     void writeIoPort(int port, int value);
 
@@ -36,4 +53,9 @@ public interface BaseBusProvider extends Device {
     default int getAddressOnBus() {
         return 0xFF;
     }
+
+    //pages backed by arrays, cpus can access them without going through the bus
+    default MemoryMap getMemoryMap() {
+        return new MemoryMap();
+    }
 }
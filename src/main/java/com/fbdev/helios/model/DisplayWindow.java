@@ -35,7 +35,11 @@ public interface DisplayWindow {
     int SHOW_INFO_FRAMES_DELAY = 120; //~2sec
 
 
+    //discards the frames, see HeadlessWindow for a usable headless mode
     DisplayWindow HEADLESS_INSTANCE = new DisplayWindow() {
+
+        private final int[] render = new int[VideoMode.H28_V36.getPixelW() * VideoMode.H28_V36.getPixelH()];
+
         @Override
         public void addKeyListener(KeyListener keyAdapter) {
 
@@ -56,6 +60,16 @@ public interface DisplayWindow {
 
         }
 
+        @Override
+        public void renderScreenIndexed(byte[] indexed, int[] colors, Optional<String> label, VideoMode videoMode) {
+
+        }
+
+        @Override
+        public void repeatFrame(Optional<String> label, VideoMode videoMode) {
+
+        }
+
         @Override
         public void resetScreen() {
 
@@ -71,9 +85,14 @@ public interface DisplayWindow {
 
         }
 
+        @Override
+        public boolean isRenderRequired() {
+            return false;
+        }
+
         @Override
         public int[] acquireRender() {
-            return new int[0];
+            return render;
         }
     };
 
@@ -83,6 +102,31 @@ public interface DisplayWindow {
 
     void renderScreen(Optional<String> label, VideoMode videoMode);
 
+    /**
+     * Indexed frame, converted to RGB here: colors[pixel]
+     */
+    default void renderScreenIndexed(byte[] indexed, int[] colors, Optional<String> label, VideoMode videoMode) {
+        int[] render = acquireRender();
+        for (int i = 0; i < indexed.length; i++) {
+            render[i] = colors[indexed[i]];
+        }
+        renderScreen(label, videoMode);
+    }
+
+    /**
+     * No new frame this time (unchanged or skipped), the last one presented stays on screen
+     */
+    default void repeatFrame(Optional<String> label, VideoMode videoMode) {
+        //DO NOTHING
+    }
+
+    /**
+     * False when nobody looks at the frames, the system then doesn't render them
+     */
+    default boolean isRenderRequired() {
+        return true;
+    }
+
     void resetScreen();
 
     void setFullScreen(boolean value);
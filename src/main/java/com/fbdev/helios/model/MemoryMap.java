@@ -0,0 +1,81 @@
+/*
+ * MemoryMap
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 17/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.model;
+
+/**
+ * MemoryMap
+ * <p>
+ * 64k address space split in 256 bytes pages, a page is either backed by an array
+ * or left empty (null) and handled by the bus.
+ * Read and write mappings are independent, ie. ROM pages have no write mapping.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class MemoryMap {
+
+    public static final int PAGE_SHIFT = 8;
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    public static final int PAGE_MASK = PAGE_SIZE - 1;
+    public static final int ADDRESS_MASK = 0xFFFF;
+    public static final int NUM_PAGES = (ADDRESS_MASK + 1) >> PAGE_SHIFT;
+
+    public final byte[][] readPages = new byte[NUM_PAGES][];
+    public final int[] readOffsets = new int[NUM_PAGES];
+    public final byte[][] writePages = new byte[NUM_PAGES][];
+    public final int[] writeOffsets = new int[NUM_PAGES];
+
+    //[start, end), page aligned
+    public void mapRead(int start, int end, byte[] data, int dataStart) {
+        map(readPages, readOffsets, start, end, data, dataStart);
+    }
+
+    public void mapWrite(int start, int end, byte[] data, int dataStart) {
+        map(writePages, writeOffsets, start, end, data, dataStart);
+    }
+
+    public void mapReadWrite(int start, int end, byte[] data, int dataStart) {
+        mapRead(start, end, data, dataStart);
+        mapWrite(start, end, data, dataStart);
+    }
+
+    public void unmapWrite(int start, int end) {
+        map(writePages, writeOffsets, start, end, null, 0);
+    }
+
+    public void unmap(int start, int end) {
+        map(readPages, readOffsets, start, end, null, 0);
+        unmapWrite(start, end);
+    }
+
+    private static void map(byte[][] pages, int[] offsets, int start, int end, byte[] data, int dataStart) {
+        if ((start & PAGE_MASK) != 0 || (end & PAGE_MASK) != 0 || start >= end || end > ADDRESS_MASK + 1) {
+            throw new IllegalArgumentException("Invalid page range: " + Integer.toHexString(start) +
+                    "-" + Integer.toHexString(end));
+        }
+        int offset = dataStart;
+        for (int page = start >> PAGE_SHIFT; page < end >> PAGE_SHIFT; page++) {
+            pages[page] = data;
+            offsets[page] = data != null ? offset : 0;
+            offset += PAGE_SIZE;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * HeadlessWindow
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.ui;
+
+import com.fbdev.helios.model.DisplayWindow;
+import com.fbdev.helios.model.SystemProvider;
+import com.fbdev.helios.util.FileUtil;
+import com.fbdev.helios.util.VideoMode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.awt.event.KeyListener;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * HeadlessWindow
+ * <p>
+ * DisplayWindow with no UI, frames go to one reused framebuffer. Rendering can be skipped
+ * altogether, frames can be hashed and exported as PPM files; AWT is never initialized.
+ * <p>
+ * helios.headless.render=false    don't render frames
+ * helios.headless.hash=true       hash each frame, logged every HASH_LOG_FRAMES frames
+ * helios.headless.export=dir      write a frame every helios.headless.export.every frames to dir
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class HeadlessWindow implements DisplayWindow {
+
+    private static final Logger LOG = LogManager.getLogger(HeadlessWindow.class.getSimpleName());
+    private static final int HASH_LOG_FRAMES = 600;
+
+    private static final boolean render;
+    private static final boolean hash;
+    private static final Optional<Path> exportFolder;
+    private static final int exportEvery;
+
+    static {
+        render = Boolean.parseBoolean(System.getProperty("helios.headless.render", "true"));
+        hash = Boolean.parseBoolean(System.getProperty("helios.headless.hash", "false"));
+        exportFolder = Optional.ofNullable(System.getProperty("helios.headless.export")).map(Paths::get);
+        exportEvery = Math.max(1, Integer.parseInt(System.getProperty("helios.headless.export.every", "60")));
+    }
+
+    //the last frame, in RGB only when exporting
+    private final int[] renderData;
+    private final int width, height;
+    private long frameCounter;
+    private int frameHash;
+
+    public HeadlessWindow(VideoMode videoMode) {
+        this.width = videoMode.getPixelW();
+        this.height = videoMode.getPixelH();
+        this.renderData = new int[width * height];
+    }
+
+    @Override
+    public void init() {
+        LOG.info("Headless, render: {}, hash: {}, export: {}", render, hash,
+                exportFolder.map(p -> p.toAbsolutePath() + " every " + exportEvery + " frames").orElse("none"));
+    }
+
+    @Override
+    public boolean isRenderRequired() {
+        return render;
+    }
+
+    @Override
+    public void renderScreen(Optional<String> label, VideoMode videoMode) {
+        frameCounter++;
+        if (hash) {
+            newHash(Arrays.hashCode(renderData));
+        }
+        if (isExportFrame()) {
+            export();
+        }
+    }
+
+    //unchanged or skipped frame: counted, keeps the last hash and image so the cadence follows emulated frames
+    @Override
+    public void repeatFrame(Optional<String> label, VideoMode videoMode) {
+        frameCounter++;
+        if (hash) {
+            newHash(frameHash);
+        }
+        if (isExportFrame()) {
+            export();
+        }
+    }
+
+    @Override
+    public void renderScreenIndexed(byte[] indexed, int[] colors, Optional<String> label, VideoMode videoMode) {
+        frameCounter++;
+        if (hash) {
+            newHash(Arrays.hashCode(indexed));
+        }
+        if (exportFolder.isPresent()) {
+            for (int i = 0; i < indexed.length; i++) {
+                renderData[i] = colors[indexed[i]];
+            }
+        }
+        if (isExportFrame()) {
+            export();
+        }
+    }
+
+    @Override
+    public int[] acquireRender() {
+        return renderData;
+    }
+
+    //emulated frames, repeated ones included
+    public long getFrameCounter() {
+        return frameCounter;
+    }
+
+    //hash of the frame on screen, repeated frames keep it; 0 unless helios.headless.hash=true
+    public int getFrameHash() {
+        return frameHash;
+    }
+
+    private void newHash(int h) {
+        frameHash = h;
+        if (frameCounter % HASH_LOG_FRAMES == 0) {
+            LOG.info("Frame {}, hash: {}", frameCounter, Integer.toHexString(h));
+        }
+    }
+
+    private boolean isExportFrame() {
+        return exportFolder.isPresent() && frameCounter % exportEvery == 0;
+    }
+
+    //binary PPM, no image libraries needed
+    private void export() {
+        byte[] header = ("P6\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] data = Arrays.copyOf(header, header.length + renderData.length * 3);
+        for (int i = 0, k = header.length; i < renderData.length; i++) {
+            int rgb = renderData[i];
+            data[k++] = (byte) (rgb >> 16);
+            data[k++] = (byte) (rgb >> 8);
+            data[k++] = (byte) rgb;
+        }
+        Path file = exportFolder.get().resolve(String.format("frame_%08d.ppm", frameCounter));
+        FileUtil.writeFileSafe(file, data);
+    }
+
+    @Override
+    public void setTitle(String rom) {
+        LOG.info("Running: {}", rom);
+    }
+
+    @Override
+    public void resetScreen() {
+        Arrays.fill(renderData, 0);
+    }
+
+    @Override
+    public void setFullScreen(boolean value) {
+        //DO NOTHING
+    }
+
+    @Override
+    public void reloadSystem(SystemProvider systemProvider) {
+        //DO NOTHING
+    }
+
+    @Override
+    public void addKeyListener(KeyListener keyAdapter) {
+        //DO NOTHING
+    }
+}
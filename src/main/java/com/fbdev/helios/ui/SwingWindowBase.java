@@ -36,11 +36,13 @@ import java.awt.event.*;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.awt.image.VolatileImage;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.locks.LockSupport;
 
 import static com.fbdev.helios.model.SystemProvider.SystemEvent.*;
 import static com.fbdev.helios.ui.SwingWindowBase.FileResourceType.ROM;
@@ -52,6 +54,22 @@ public abstract class SwingWindowBase implements DisplayWindow {
     private static final Logger LOG = LogManager.getLogger(SwingWindowBase.class.getSimpleName());
     public static String QUICK_SAVE_FILENAME = "quick_save";
     public static String QUICK_SAVE_PATH = System.getProperty("quick.save.path", ".");
+    //present frames on a dedicated thread, the emulation thread only publishes them
+    private static final boolean usePresenterThread;
+    //java2d: Graphics2D.drawImage scales, software: SoftwareScaler scales and java2d only copies
+    private static final boolean softwareScaling;
+    private static final int scalerThreads;
+    //upload each frame to a VolatileImage and present it with 3 buffers
+    private static final boolean volatilePresent;
+    private static final int PRESENT_STATS_FRAMES = 50;
+
+    static {
+        usePresenterThread = Boolean.parseBoolean(System.getProperty("helios.ui.presenter.thread", "true"));
+        softwareScaling = "software".equalsIgnoreCase(System.getProperty("helios.ui.scaler", "java2d"));
+        scalerThreads = Integer.parseInt(System.getProperty("helios.ui.scaler.threads", "1"));
+        volatilePresent = Boolean.parseBoolean(System.getProperty("helios.ui.volatile", "false"));
+    }
+
     private final JLabel perfLabel = new JLabel("");
     protected Dimension frameBufferSize;
     protected Dimension viewportSize;
@@ -63,6 +81,16 @@ public abstract class SwingWindowBase implements DisplayWindow {
     protected SystemProvider mainEmu;
     //rendering stuff
     protected int[] renderData;
+    private TripleBuffer frames;
+    private SoftwareScaler scaler;
+    private BufferedImage scaledImage;
+    private VolatileImage volatileImage;
+    private long presentNsAccum;
+    private int presentCounter;
+    private volatile String presentStats = "";
+    private Thread presenter;
+    //set by resetScreen, the presenter blanks renderData as it is the only thread drawing from it
+    private volatile boolean blankPending;
     protected Dimension dimension = new Dimension();
     protected int x, y;
     private double scale = DEFAULT_SCALE_FACTOR;
@@ -101,6 +129,50 @@ public abstract class SwingWindowBase implements DisplayWindow {
 
     public abstract void refresh();
 
+    /**
+     * Shows the frame in acquireRender(): hands it to the presenter thread, when there is one,
+     * otherwise presents it on the calling thread.
+     */
+    protected void presentFrame() {
+        if (presenter == null) {
+            refresh();
+            return;
+        }
+        frames.publish();
+        LockSupport.unpark(presenter);
+    }
+
+    private void startPresenter() {
+        frames = new TripleBuffer(renderData.length);
+        presenter = new PriorityThreadFactory("presenter").newThread(this::presenterLoop);
+        presenter.setDaemon(true);
+        presenter.start();
+        LOG.info("Presenting frames on thread: {}", presenter.getName());
+    }
+
+    private void presenterLoop() {
+        do {
+            boolean blank = blankPending;
+            int[] frame = frames.takeLatest();
+            if (frame == null && !blank) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                if (blank) {
+                    //a frame published before the reset is dropped
+                    blankPending = false;
+                    Arrays.fill(renderData, 0);
+                } else {
+                    System.arraycopy(frame, 0, renderData, 0, renderData.length);
+                }
+                refresh();
+            } catch (Exception e) {
+                LOG.error("Unable to present frame", e);
+            }
+        } while (true);
+    }
+
     @Override
     public void init() {
         initSwing();
@@ -171,8 +243,13 @@ public abstract class SwingWindowBase implements DisplayWindow {
             perfLabel.setText("");
             jFrame.setTitle(FRAME_TITLE_HEAD);
             LOG.info("Blanking screen");
-            Arrays.fill(renderData, 0);
-            refresh();
+            if (presenter == null) {
+                Arrays.fill(renderData, 0);
+                refresh();
+                return;
+            }
+            blankPending = true;
+            LockSupport.unpark(presenter);
         });
     }
 
@@ -203,6 +280,9 @@ public abstract class SwingWindowBase implements DisplayWindow {
 
     protected void showLabel(String label) {
         showInfoCount--;
+        if (!presentStats.isEmpty()) {
+            label += " - " + presentStats;
+        }
         if (actionInfo.isPresent()) {
             label += " - " + actionInfo.get();
         }
@@ -418,6 +498,11 @@ public abstract class SwingWindowBase implements DisplayWindow {
         baseImage = createImage(gd, frameBufferSize);
         destImage = baseImage.getSubimage(0, 0, viewportSize.width, viewportSize.height);
         renderData = getPixels(baseImage);
+        if (softwareScaling) {
+            scaler = new SoftwareScaler();
+            scaler.setBands(scalerThreads);
+            LOG.info("Software scaling, threads: {}", scalerThreads);
+        }
 
         JMenuBar bar = new JMenuBar();
 
@@ -431,6 +516,10 @@ public abstract class SwingWindowBase implements DisplayWindow {
         addKeyAction(pauseItem, TOGGLE_PAUSE, e -> handleSystemEvent(TOGGLE_PAUSE, null, null));
         setting.add(pauseItem);
 
+        JMenuItem turboItem = new JMenuItem("Turbo");
+        addKeyAction(turboItem, TOGGLE_THROTTLE, e -> handleSystemEvent(TOGGLE_THROTTLE, null, null));
+        setting.add(turboItem);
+
         JMenuItem resetItem = new JMenuItem("Hard Reset");
         addKeyAction(resetItem, RESET, e -> mainEmu.reset());
         setting.add(resetItem);
@@ -541,7 +630,7 @@ public abstract class SwingWindowBase implements DisplayWindow {
         screenCanvas = new Canvas(gd.getDefaultConfiguration());
         screenCanvas.setIgnoreRepaint(true);
         jFrame.add(screenCanvas, -1);
-        screenCanvas.createBufferStrategy(2);
+        screenCanvas.createBufferStrategy(volatilePresent ? 3 : 2);
         do {
             strategy = screenCanvas.getBufferStrategy();
         } while (strategy == null);
@@ -558,6 +647,9 @@ public abstract class SwingWindowBase implements DisplayWindow {
         viewportW = jFrame.getWidth();
 
         jFrame.setVisible(true);
+        if (usePresenterThread) {
+            startPresenter();
+        }
     }
 
     protected void refreshStrategy(boolean isBlanked) {
@@ -568,6 +660,10 @@ public abstract class SwingWindowBase implements DisplayWindow {
         int w = viewportBounds.width;
         int offsetW = viewportBounds.x;
         int offsetH = viewportBounds.y;
+        Image src = isBlanked || scaler == null ? destImage : scaleFrame(w, h);
+        int srcW = src == destImage ? dimension.width : w;
+        int srcH = src == destImage ? dimension.height : h;
+        long startNs = System.nanoTime();
         do {
             try {
                 bg = getBuffer();
@@ -575,16 +671,59 @@ public abstract class SwingWindowBase implements DisplayWindow {
                     bg.setColor(Color.BLACK);
                     bg.fillRect(0, 0, w, h);
                 } else {
-                    bg.drawImage(destImage, offsetW, offsetH, w + offsetW, h + offsetH
-                            , 0, 0, dimension.width, dimension.height, null);
+                    Image img = volatilePresent ? uploadVolatile(src, srcW, srcH) : src;
+                    bg.drawImage(img, offsetW, offsetH, w + offsetW, h + offsetH
+                            , 0, 0, srcW, srcH, null);
                 }
             } finally {
                 Optional.ofNullable(bg).ifPresent(Graphics2D::dispose);
             }
-        } while (!updateScreen());
+        } while (!updateScreen() || (volatileImage != null && volatileImage.contentsLost()));
+        updatePresentStats(System.nanoTime() - startNs);
         detectUserScreenChange();
     }
 
+    //copies the frame to video memory, recreating the VolatileImage when lost or incompatible
+    private VolatileImage uploadVolatile(Image src, int w, int h) {
+        GraphicsConfiguration gc = screenCanvas.getGraphicsConfiguration();
+        if (volatileImage == null || volatileImage.getWidth() != w || volatileImage.getHeight() != h
+                || volatileImage.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+            Optional.ofNullable(volatileImage).ifPresent(VolatileImage::flush);
+            volatileImage = gc.createCompatibleVolatileImage(w, h);
+        }
+        Graphics2D g = volatileImage.createGraphics();
+        try {
+            g.drawImage(src, 0, 0, w, h, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return volatileImage;
+    }
+
+    //average time to present a frame, shown in the perf label
+    private void updatePresentStats(long presentNs) {
+        presentNsAccum += presentNs;
+        if (++presentCounter == PRESENT_STATS_FRAMES) {
+            presentStats = String.format("present %.2fms", presentNsAccum / (double) Util.MILLI_IN_NS / presentCounter);
+            presentNsAccum = 0;
+            presentCounter = 0;
+        }
+    }
+
+    //scales the visible frame to w x h, java2d then draws it 1:1
+    private Image scaleFrame(int w, int h) {
+        if (w * h == 0) {
+            return destImage;
+        }
+        if (scaledImage == null || scaledImage.getWidth() != w || scaledImage.getHeight() != h) {
+            scaledImage = createImage(jFrame.getGraphicsConfiguration().getDevice(), new Dimension(w, h));
+        }
+        int stride = baseImage.getWidth();
+        scaler.scale(renderData, y * stride + x, stride, dimension.width, dimension.height,
+                getPixels(scaledImage), w, h);
+        return scaledImage;
+    }
+
     private void detectUserScreenChange() {
         if (--screenChangedCheckCounter == 0) {
             screenChangedCheckCounter = screenChangedCheckFrequency;
@@ -634,7 +773,7 @@ public abstract class SwingWindowBase implements DisplayWindow {
     }
 
     public int[] acquireRender() {
-        return renderData;
+        return presenter == null ? renderData : frames.back();
     }
 
     protected boolean updateDimension(boolean force, int w, int h, int newX, int newY) {
@@ -0,0 +1,47 @@
+/*
+ * RenderPool
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.util;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * RenderPool
+ * <p>
+ * The ForkJoinPool that runs the parts of a frame rendered or scaled in parallel, one worker per core.
+ * Shared by every vdp and scaler of the process and created on first use, so that rendering
+ * and scaling don't compete with two sets of threads.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public final class RenderPool {
+
+    private RenderPool() {
+    }
+
+    private static class Holder {
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public static ForkJoinPool get() {
+        return Holder.POOL;
+    }
+}
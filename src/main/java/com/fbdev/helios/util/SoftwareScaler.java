@@ -0,0 +1,179 @@
+/*
+ * SoftwareScaler
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.util;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * SoftwareScaler
+ * <p>
+ * Nearest neighbour scaling of an RGB frame. The source x and y of every destination pixel are
+ * kept in LUTs, recomputed only when the source or destination size changes; 2x, 3x and 4x
+ * widths expand each pixel without a LUT. A destination row that maps to the same source row
+ * as the previous one is copied, so an integer scale only expands one row out of n.
+ * Rows can be split in bands scaled in parallel.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class SoftwareScaler {
+
+    public static final int MAX_BANDS = 16;
+
+    private int srcW, srcH, destW, destH;
+    private int[] xLut = new int[0]; //destination x -> source x
+    private int[] yLut = new int[0]; //destination y -> source y
+    private int factorX; //destW / srcW when an integer, 0 otherwise
+    private int bands = 1;
+
+    //current frame
+    private int[] src, dest;
+    private int srcOffset, srcStride;
+
+    /**
+     * Number of row bands scaled in parallel, 1 scales on the calling thread.
+     */
+    public void setBands(int bands) {
+        this.bands = Math.max(1, Math.min(MAX_BANDS, bands));
+    }
+
+    /**
+     * Scales the srcW x srcH frame starting at src[srcOffset], with rows srcStride apart,
+     * to the destW x destH frame in dest.
+     */
+    public void scale(int[] src, int srcOffset, int srcStride, int srcW, int srcH,
+                      int[] dest, int destW, int destH) {
+        if (srcW != this.srcW || srcH != this.srcH || destW != this.destW || destH != this.destH) {
+            computeLuts(srcW, srcH, destW, destH);
+        }
+        this.src = src;
+        this.srcOffset = srcOffset;
+        this.srcStride = srcStride;
+        this.dest = dest;
+        int numBands = Math.min(bands, destH);
+        if (numBands > 1) {
+            RenderPool.get().invoke(new BandScale(0, numBands, numBands));
+        } else {
+            scaleRows(0, destH);
+        }
+    }
+
+    private void computeLuts(int srcW, int srcH, int destW, int destH) {
+        this.srcW = srcW;
+        this.srcH = srcH;
+        this.destW = destW;
+        this.destH = destH;
+        xLut = new int[destW];
+        yLut = new int[destH];
+        for (int i = 0; i < destW; i++) {
+            xLut[i] = (int) ((long) i * srcW / destW);
+        }
+        for (int i = 0; i < destH; i++) {
+            yLut[i] = (int) ((long) i * srcH / destH);
+        }
+        factorX = destW % srcW == 0 ? destW / srcW : 0;
+    }
+
+    //destination rows [from, to)
+    private void scaleRows(int from, int to) {
+        for (int y = from; y < to; y++) {
+            int destRow = y * destW;
+            if (y > from && yLut[y] == yLut[y - 1]) {
+                System.arraycopy(dest, destRow - destW, dest, destRow, destW);
+                continue;
+            }
+            int srcRow = srcOffset + yLut[y] * srcStride;
+            switch (factorX) {
+                case 1:
+                    System.arraycopy(src, srcRow, dest, destRow, destW);
+                    break;
+                case 2:
+                    expand2(srcRow, destRow);
+                    break;
+                case 3:
+                    expand3(srcRow, destRow);
+                    break;
+                case 4:
+                    expand4(srcRow, destRow);
+                    break;
+                default:
+                    expandLut(srcRow, destRow);
+                    break;
+            }
+        }
+    }
+
+    private void expand2(int s, int d) {
+        for (int end = s + srcW; s < end; s++, d += 2) {
+            int c = src[s];
+            dest[d] = c;
+            dest[d + 1] = c;
+        }
+    }
+
+    private void expand3(int s, int d) {
+        for (int end = s + srcW; s < end; s++, d += 3) {
+            int c = src[s];
+            dest[d] = c;
+            dest[d + 1] = c;
+            dest[d + 2] = c;
+        }
+    }
+
+    private void expand4(int s, int d) {
+        for (int end = s + srcW; s < end; s++, d += 4) {
+            int c = src[s];
+            dest[d] = c;
+            dest[d + 1] = c;
+            dest[d + 2] = c;
+            dest[d + 3] = c;
+        }
+    }
+
+    private void expandLut(int s, int d) {
+        final int[] lut = xLut;
+        for (int i = 0; i < lut.length; i++) {
+            dest[d + i] = src[s + lut[i]];
+        }
+    }
+
+    //scales bands [from, to), splitting in halves
+    @SuppressWarnings("serial")
+    private class BandScale extends RecursiveAction {
+        private final int from, to, bands;
+
+        BandScale(int from, int to, int bands) {
+            this.from = from;
+            this.to = to;
+            this.bands = bands;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                scaleRows(from * destH / bands, to * destH / bands);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BandScale(from, mid, bands), new BandScale(mid, to, bands));
+        }
+    }
+}
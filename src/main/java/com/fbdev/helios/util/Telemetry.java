@@ -56,18 +56,25 @@ public class Telemetry {
     };
 
     private static Telemetry telemetry = new Telemetry();
-    private static NumberFormat fpsFormatter = new DecimalFormat("#0.00");
     private static int STATS_EVERY_FRAMES = 50;
+    //created on first use, instances are cheap to create
+    private NumberFormat fpsFormatter;
     private Table<String, Long, Double> data = TreeBasedTable.create();
     private Path telemetryFile;
     private long frameCounter = 0;
     private double fpsAccum = 0;
+    private int skippedFrames = 0;
 
 
     public static Telemetry getInstance() {
         return telemetry;
     }
 
+    //for systems running next to others, getInstance() is shared
+    public static Telemetry createInstance() {
+        return new Telemetry();
+    }
+
     private static void writeToFile(Path file, String res) {
         try {
             Files.write(file, res.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
@@ -81,6 +88,11 @@ public class Telemetry {
         addSample("fps", value);
     }
 
+    //a frame was emulated but not rendered (auto frameskip)
+    public void addSkippedFrame() {
+        skippedFrames++;
+    }
+
     public void addSample(String type, double value) {
         if (!enable) {
             return;
@@ -94,6 +106,9 @@ public class Telemetry {
         double r = fpsAccum / STATS_EVERY_FRAMES;
         r = ((int) (r * 100)) / 100d;
         fpsAccum = 0;
+        if (fpsFormatter == null) {
+            fpsFormatter = new DecimalFormat("#0.00");
+        }
         return fpsFormatter.format(r);
     }
 
@@ -105,13 +120,16 @@ public class Telemetry {
         Optional<String> o = Optional.empty();
         if (hasNewStats()) {
 //            Optional<String> arc = AudioRateControl.getLatestStats();
-            o = Optional.of(getAvgFpsRounded() + "fps"); // + (arc.isPresent() ? ", " + arc.get() : ""));
+            String skip = skippedFrames > 0 ? ", skip " + skippedFrames + "/" + STATS_EVERY_FRAMES : "";
+            o = Optional.of(getAvgFpsRounded() + "fps" + skip); // + (arc.isPresent() ? ", " + arc.get() : ""));
+            skippedFrames = 0;
         }
         return o;
     }
 
     public void reset() {
         frameCounter = 0;
+        skippedFrames = 0;
         data.clear();
         telemetryFile = null;
     }
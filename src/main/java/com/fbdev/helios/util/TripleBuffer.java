@@ -0,0 +1,78 @@
+/*
+ * TripleBuffer
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TripleBuffer
+ * <p>
+ * Lock-free frame handoff between one producer (emulation) and one consumer (presenter).
+ * The producer draws into back() and publishes it, the consumer picks up the newest published
+ * frame; neither side ever waits for the other, frames the consumer is too slow for are dropped.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public final class TripleBuffer {
+
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final int[][] buffers;
+    //index of the shared buffer, FRESH when the producer has published into it since the last take
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0; //producer only
+    private int front = 2; //consumer only
+
+    public TripleBuffer(int size) {
+        buffers = new int[][]{new int[size], new int[size], new int[size]};
+    }
+
+    /**
+     * Producer side, the buffer to draw the next frame into
+     */
+    public int[] back() {
+        return buffers[back];
+    }
+
+    /**
+     * Producer side, hands the back buffer over and gets a new one to draw into
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Consumer side, the newest published frame or null when nothing new was published
+     */
+    public int[] takeLatest() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return buffers[front];
+    }
+
+    public int size() {
+        return buffers[0].length;
+    }
+}
@@ -20,37 +20,66 @@
 package com.fbdev.helios.z80;
 
 import com.fbdev.helios.model.BaseBusProvider;
-import com.fbdev.helios.util.Size;
 import com.fbdev.helios.util.Util;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import z80core.Z80;
 import z80core.Z80State;
 
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
 public class Z80CoreWrapper implements Z80Provider {
 
     public final static boolean STOP_ON_EXCEPTION;
     public static final boolean Z80_DEBUG;
+    public static final boolean IDLE_SKIP;
     private final static Logger LOG = LogManager.getLogger(Z80CoreWrapper.class.getSimpleName());
     public static boolean verbose = false;
+    //the core exports flagQ only through getZ80State(), which allocates
+    private static final Field LAST_FLAG_Q = getLastFlagQField();
 
     static {
         STOP_ON_EXCEPTION =
                 Boolean.parseBoolean(System.getProperty("z80.stop.on.exception", "false"));
         Z80_DEBUG = Boolean.parseBoolean(System.getProperty("z80.debug", "false"));
+        IDLE_SKIP = Boolean.parseBoolean(System.getProperty("z80.idle.skip", "true"));
         if (Z80_DEBUG) {
             LOG.info("z80 debug mode: true");
         }
+        LOG.info("z80 idle skip: {}", IDLE_SKIP);
     }
 
+    private static final int HALT_CYCLES = 4;
+    private static final int NO_LOOP = -1;
+    //a loop is a backward jump of at most MAX_LOOP_BYTES, repeating within MAX_LOOP_CYCLES
+    private static final int MAX_LOOP_BYTES = 32;
+    private static final int MAX_LOOP_CYCLES = 256;
+    private static final int LOOP_STATE_LEN = 15;
+
     protected Z80 z80Core;
     protected BaseBusProvider z80BusProvider;
     protected Z80MemIoOps memIoOps;
     protected int instCyclesPenalty = 0;
 
+    private int loopPc = NO_LOOP, loopCycles, loopWrites, loopRegR;
+    private final int[] loopState = new int[LOOP_STATE_LEN];
+    private final int[] currentState = new int[LOOP_STATE_LEN];
+
     protected Z80CoreWrapper() {
     }
 
+    private static Field getLastFlagQField() {
+        try {
+            Field f = Z80.class.getDeclaredField("lastFlagQ");
+            f.setAccessible(true);
+            return f;
+        } catch (Exception e) {
+            LOG.warn("Unable to access z80core flagQ, getZ80State(Z80State) reports it as false");
+            return null;
+        }
+    }
+
     public static Z80CoreWrapper createInstance(BaseBusProvider busProvider) {
         Z80CoreWrapper w = new Z80CoreWrapper();
         w.z80BusProvider = busProvider;
@@ -74,17 +103,122 @@ public class Z80CoreWrapper implements Z80Provider {
         try {
             z80Core.execute();
         } catch (Exception | Error e) {
-            LOG.error("z80 exception", e);
-            LOG.error("Z80State: {}", Z80Helper.toString(z80Core.getZ80State()));
-            LOG.error("Halting Z80");
-            z80Core.setHalted(true);
-            if (STOP_ON_EXCEPTION) {
-                Util.waitForever();
-            }
+            handleException(e);
         }
         return (int) (memIoOps.getTstates()) + instCyclesPenalty;
     }
 
+    protected void handleException(Throwable e) {
+        LOG.error("z80 exception", e);
+        LOG.error("Z80State: {}", Z80Helper.toString(z80Core.getZ80State()));
+        LOG.error("Halting Z80");
+        z80Core.setHalted(true);
+        if (STOP_ON_EXCEPTION) {
+            Util.waitForever();
+        }
+    }
+
+    @Override
+    public int executeBurst(int budget) {
+        if (!IDLE_SKIP) {
+            return Z80Provider.super.executeBurst(budget);
+        }
+        resetIdle();
+        int cycles = 0;
+        while (cycles <= budget) {
+            int pc = z80Core.getRegPC();
+            int delay = Math.max(1, executeInstruction());
+            cycles += delay;
+            cycles += skipIdle(pc, delay, budget - cycles);
+        }
+        return cycles;
+    }
+
+    protected void resetIdle() {
+        loopPc = NO_LOOP;
+    }
+
+    /**
+     * A halted cpu, or a short loop that doesn't write and ends each iteration in the same state,
+     * keeps repeating until the next interrupt: skip the iterations that start within the remaining cycles,
+     * charging their cycles and R increments.
+     */
+    protected int skipIdle(int prevPc, int delay, int remaining) {
+        if (remaining < 0) {
+            return 0;
+        }
+        if (z80Core.isHalted()) {
+            loopPc = NO_LOOP;
+            if (isInterruptPending()) {
+                return 0;
+            }
+            int num = remaining / HALT_CYCLES + 1;
+            addRegR(num);
+            return num * HALT_CYCLES;
+        }
+        int pc = z80Core.getRegPC();
+        if (pc == loopPc) {
+            loopCycles += delay;
+            int skipped = 0;
+            if (memIoOps.getWriteCount() == loopWrites && !isInterruptPending()) {
+                captureLoopState(currentState);
+                if (Arrays.equals(loopState, currentState)) {
+                    int num = (remaining + 1) / loopCycles;
+                    addRegR(num * ((z80Core.getRegR() - loopRegR) & 0x7F));
+                    skipped = num * loopCycles;
+                }
+            }
+            startLoop(pc);
+            return skipped;
+        }
+        if (pc < prevPc && prevPc - pc <= MAX_LOOP_BYTES) {
+            startLoop(pc);
+        } else if (loopPc != NO_LOOP) {
+            loopCycles += delay;
+            if (loopCycles > MAX_LOOP_CYCLES) {
+                loopPc = NO_LOOP;
+            }
+        }
+        return 0;
+    }
+
+    private void startLoop(int pc) {
+        loopPc = pc;
+        loopCycles = 0;
+        loopWrites = memIoOps.getWriteCount();
+        loopRegR = z80Core.getRegR();
+        captureLoopState(loopState);
+    }
+
+    //everything but R
+    private void captureLoopState(int[] state) {
+        state[0] = z80Core.getRegA() << 8 | z80Core.getFlags();
+        state[1] = z80Core.getRegBC();
+        state[2] = z80Core.getRegDE();
+        state[3] = z80Core.getRegHL();
+        state[4] = z80Core.getRegAFx();
+        state[5] = z80Core.getRegBCx();
+        state[6] = z80Core.getRegDEx();
+        state[7] = z80Core.getRegHLx();
+        state[8] = z80Core.getRegIX();
+        state[9] = z80Core.getRegIY();
+        state[10] = z80Core.getRegSP();
+        state[11] = z80Core.getMemPtr();
+        state[12] = z80Core.getRegI();
+        state[13] = z80Core.getIM().ordinal();
+        state[14] = (z80Core.isIFF1() ? 1 : 0) | (z80Core.isIFF2() ? 2 : 0) | (z80Core.isPendingEI() ? 4 : 0);
+    }
+
+    protected boolean isInterruptPending() {
+        return z80Core.isNMI() || (z80Core.isIFF1() && memIoOps.isActiveINT());
+    }
+
+    //R increments once per opcode fetch, bit 7 is preserved
+    protected void addRegR(int fetches) {
+        int r = z80Core.getRegR();
+        z80Core.setRegR((r & 0x80) | ((r + fetches) & 0x7F));
+    }
+
     //From the Z80UM.PDF document, a reset clears the interrupt enable, PC and
     //registers I and R, then sets interrupt status to mode 0.
     @Override
@@ -116,12 +250,12 @@ public class Z80CoreWrapper implements Z80Provider {
 
     @Override
     public int readMemory(int address) {
-        return (int) z80BusProvider.read(address, Size.BYTE);
+        return z80BusProvider.read8(address);
     }
 
     @Override
     public void writeMemory(int address, int data) {
-        z80BusProvider.write(address, data, Size.BYTE);
+        z80BusProvider.write8(address, data);
     }
 
     @Override
@@ -143,4 +277,22 @@ public class Z80CoreWrapper implements Z80Provider {
     public Z80State getZ80State() {
         return z80Core.getZ80State();
     }
+
+    //the core has no getter for flagQ, it only affects the undocumented flags of SCF/CCF
+    @Override
+    public Z80State getZ80State(Z80State state) {
+        Z80Helper.getZ80State(z80Core, state).setFlagQ(isCoreFlagQ());
+        return state;
+    }
+
+    private boolean isCoreFlagQ() {
+        if (LAST_FLAG_Q == null) {
+            return false;
+        }
+        try {
+            return LAST_FLAG_Q.getBoolean(z80Core);
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+/*
+ * Z80FlagTables
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80;
+
+/**
+ * Z80FlagTables
+ * <p>
+ * S, Z, 5, 3, P and N flags for every 8 bit result, same values as the z80core tables
+ * so that the cores in this package produce identical flags.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public final class Z80FlagTables {
+
+    public static final int CARRY_MASK = 0x01;
+    public static final int ADDSUB_MASK = 0x02;
+    public static final int PARITY_MASK = 0x04;
+    public static final int BIT3_MASK = 0x08;
+    public static final int HALFCARRY_MASK = 0x10;
+    public static final int BIT5_MASK = 0x20;
+    public static final int ZERO_MASK = 0x40;
+    public static final int SIGN_MASK = 0x80;
+    public static final int FLAG_53_MASK = BIT5_MASK | BIT3_MASK;
+
+    public static final int[] SZ53N_ADD = new int[256];
+    public static final int[] SZ53PN_ADD = new int[256];
+    public static final int[] SZ53N_SUB = new int[256];
+    public static final int[] SZ53PN_SUB = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int f = (i & SIGN_MASK) | (i & FLAG_53_MASK);
+            if (i == 0) {
+                f |= ZERO_MASK;
+            }
+            boolean evenParity = Integer.bitCount(i) % 2 == 0;
+            SZ53N_ADD[i] = f;
+            SZ53N_SUB[i] = f | ADDSUB_MASK;
+            SZ53PN_ADD[i] = SZ53N_ADD[i] | (evenParity ? PARITY_MASK : 0);
+            SZ53PN_SUB[i] = SZ53N_SUB[i] | (evenParity ? PARITY_MASK : 0);
+        }
+    }
+
+    private Z80FlagTables() {
+    }
+}
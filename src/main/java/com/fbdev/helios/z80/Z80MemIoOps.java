@@ -20,6 +20,7 @@
 package com.fbdev.helios.z80;
 
 import com.fbdev.helios.model.BaseBusProvider;
+import com.fbdev.helios.model.MemoryMap;
 import com.fbdev.helios.util.Size;
 import com.fbdev.helios.util.Util;
 import org.apache.logging.log4j.LogManager;
@@ -32,18 +33,20 @@ public class Z80MemIoOps implements IMemIoOps {
 
     private BaseBusProvider z80BusProvider;
     private long tstatesCount = 0;
+    private int writeCount = 0;
     private boolean activeInterrupt;
-    private int[] ram;
-    private int ramSizeMask;
+    //array backed pages, a null page is handled by the bus
+    private byte[][] readPages = new MemoryMap().readPages, writePages = readPages;
+    private int[] readOffsets, writeOffsets;
 
     public static Z80MemIoOps createInstance(BaseBusProvider z80BusProvider) {
-        Z80MemIoOps m = new Z80MemIoOps() {
-            @Override
-            public int fetchOpcode(int address) {
-                return fetchOpcodeBus(address);
-            }
-        };
+        Z80MemIoOps m = new Z80MemIoOps();
         m.z80BusProvider = z80BusProvider;
+        MemoryMap map = z80BusProvider.getMemoryMap();
+        m.readPages = map.readPages;
+        m.readOffsets = map.readOffsets;
+        m.writePages = map.writePages;
+        m.writeOffsets = map.writeOffsets;
         return m;
     }
 
@@ -51,7 +54,7 @@ public class Z80MemIoOps implements IMemIoOps {
         return new Z80MemIoOpsDbg() {
             @Override
             public int fetchOpcode(int address) {
-                int res = fetchOpcodeBus(address);
+                int res = super.fetchOpcode(address);
                 traceAndCheck("READ , ", Size.BYTE, address, res);
                 return res;
             }
@@ -105,28 +108,43 @@ public class Z80MemIoOps implements IMemIoOps {
         };
     }
 
-    protected final int fetchOpcodeBus(int address) {
-        tstatesCount += 4;
-        return (int) z80BusProvider.read(address, Size.BYTE) & 0xFF;
-    }
-
     @Override
     public int fetchOpcode(int address) {
         tstatesCount += 4;
-        address &= ramSizeMask;
-        return ram[address];
+        return read8(address);
     }
 
     @Override
     public int peek8(int address) {
         tstatesCount += 3;
-        return (int) z80BusProvider.read(address, Size.BYTE) & 0xFF;
+        return read8(address);
     }
 
     @Override
     public void poke8(int address, int value) {
         tstatesCount += 3;
-        z80BusProvider.write(address, value, Size.BYTE);
+        write8(address, value);
+    }
+
+    //untimed accesses, the caller keeps track of the cycles
+    public final void write8(int address, int value) {
+        writeCount++;
+        int page = (address & MemoryMap.ADDRESS_MASK) >>> MemoryMap.PAGE_SHIFT;
+        byte[] mem = writePages[page];
+        if (mem != null) {
+            mem[writeOffsets[page] + (address & MemoryMap.PAGE_MASK)] = (byte) value;
+            return;
+        }
+        z80BusProvider.write8(address, value);
+    }
+
+    public final int read8(int address) {
+        int page = (address & MemoryMap.ADDRESS_MASK) >>> MemoryMap.PAGE_SHIFT;
+        byte[] mem = readPages[page];
+        if (mem != null) {
+            return mem[readOffsets[page] + (address & MemoryMap.PAGE_MASK)] & 0xFF;
+        }
+        return z80BusProvider.read8(address);
     }
 
     @Override
@@ -138,6 +156,7 @@ public class Z80MemIoOps implements IMemIoOps {
     @Override
     public void outPort(int port, int value) {
         tstatesCount += 4;
+        writeCount++;
         z80BusProvider.writeIoPort(port & 0xFF, value);
     }
 
@@ -178,6 +197,11 @@ public class Z80MemIoOps implements IMemIoOps {
         tstatesCount = 0;
     }
 
+    //memory and port writes, never reset
+    public int getWriteCount() {
+        return writeCount;
+    }
+
     static abstract class Z80MemIoOpsDbg extends Z80MemIoOps {
         public abstract void poke8Ext(int address, int value);
 
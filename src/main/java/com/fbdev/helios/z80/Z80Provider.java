@@ -29,6 +29,18 @@ public interface Z80Provider extends Device {
 
     int executeInstruction();
 
+    /**
+     * Runs all the instructions starting within the next budget cycles.
+     * Returns the cycles consumed, the last instruction can overshoot the budget.
+     */
+    default int executeBurst(int budget) {
+        int cycles = 0;
+        while (cycles <= budget) {
+            cycles += Math.max(1, executeInstruction());
+        }
+        return cycles;
+    }
+
     boolean interrupt(boolean value);
 
     void triggerNMI();
@@ -47,5 +59,14 @@ public interface Z80Provider extends Device {
 
     Z80State getZ80State();
 
+    /**
+     * Copies the registers to state and returns it, implementations avoid allocating
+     */
+    default Z80State getZ80State(Z80State state) {
+        Z80State s = getZ80State();
+        Z80Helper.copyState(s, state).setFlagQ(s.isFlagQ());
+        return state;
+    }
+
     enum Interrupt {NMI, IM0, IM1, IM2}
 }
@@ -0,0 +1,247 @@
+/*
+ * BlockClassWriter
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BlockClassWriter
+ * <p>
+ * Writes the class file of a Z80Block subclass, run() is a straight sequence of Z80BlockOps calls
+ * with constant arguments, followed by the cycles and R bookkeeping.
+ * The class file version predates StackMapTable frames, the method has no jumps anyway.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+class BlockClassWriter {
+
+    private static final int CLASS_VERSION = 49; //java 5
+    private static final int ACC_PUBLIC = 0x0001, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_Utf8 = 1, CONSTANT_Integer = 3, CONSTANT_Class = 7,
+            CONSTANT_Methodref = 10, CONSTANT_NameAndType = 12;
+
+    private static final int ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, LDC = 0x12, LDC_W = 0x13,
+            ALOAD_0 = 0x2A, ALOAD_1 = 0x2B, IADD = 0x60, IRETURN = 0xAC, RETURN = 0xB1,
+            INVOKEVIRTUAL = 0xB6, INVOKESPECIAL = 0xB7;
+
+    private static final String BLOCK_CLASS = Z80Block.class.getName().replace('.', '/');
+    private static final String OPS_CLASS = Z80BlockOps.class.getName().replace('.', '/');
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+
+    private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+    private final DataOutputStream code = new DataOutputStream(codeBytes);
+
+    /**
+     * @param next    PC after the block when it doesn't end with a branch
+     * @param cycles  cycles of the block, branches not taken
+     * @param fetches opcode fetches
+     */
+    static byte[] writeBlock(String className, List<Z80Instruction> ins, int next, int cycles, int fetches) {
+        try {
+            return new BlockClassWriter().write(className.replace('.', '/'), ins, next, cycles, fetches);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private byte[] write(String className, List<Z80Instruction> ins, int next, int cycles,
+                         int fetches) throws IOException {
+        int thisClass = classRef(className);
+        int superClass = classRef(BLOCK_CLASS);
+        int codeName = utf8("Code");
+        int initName = utf8("<init>");
+        int initDesc = utf8("()V");
+        int runName = utf8("run");
+        int runDesc = utf8("(L" + OPS_CLASS + ";)I");
+
+        //<init>
+        code.writeByte(ALOAD_0);
+        code.writeByte(INVOKESPECIAL);
+        code.writeShort(methodRef(BLOCK_CLASS, "<init>", "()V"));
+        code.writeByte(RETURN);
+        byte[] initCode = takeCode();
+
+        //run
+        Z80Instruction last = ins.get(ins.size() - 1);
+        for (Z80Instruction i : ins) {
+            code.writeByte(ALOAD_1);
+            for (int j = 0; j < i.op.args; j++) {
+                pushInt(i.getArg(j));
+            }
+            code.writeByte(INVOKEVIRTUAL);
+            code.writeShort(methodRef(OPS_CLASS, i.op.method, descriptor(i.op)));
+        }
+        if (!last.op.isBranch()) {
+            code.writeByte(ALOAD_1);
+            pushInt(next);
+            code.writeByte(INVOKEVIRTUAL);
+            code.writeShort(methodRef(OPS_CLASS, "setPc", "(I)V"));
+            code.writeByte(ICONST_0);
+        }
+        pushInt(cycles);
+        code.writeByte(IADD);
+        code.writeByte(ALOAD_1);
+        pushInt(fetches);
+        code.writeByte(INVOKEVIRTUAL);
+        code.writeShort(methodRef(OPS_CLASS, "endBlock", "(I)V"));
+        code.writeByte(IRETURN);
+        byte[] runCode = takeCode();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512 + runCode.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(CLASS_VERSION);
+        out.writeShort(poolCount);
+        pool.flush();
+        poolBytes.writeTo(out);
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); //interfaces
+        out.writeShort(0); //fields
+        out.writeShort(2); //methods
+        writeMethod(out, initName, initDesc, codeName, 1, 1, initCode);
+        writeMethod(out, runName, runDesc, codeName, 5, 2, runCode);
+        out.writeShort(0); //attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int desc, int codeName,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(desc);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); //exception table
+        out.writeShort(0); //attributes
+    }
+
+    private static String descriptor(Z80Op op) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < op.args; i++) {
+            sb.append('I');
+        }
+        return sb.append(op.isBranch() ? ")I" : ")V").toString();
+    }
+
+    private byte[] takeCode() throws IOException {
+        code.flush();
+        byte[] b = codeBytes.toByteArray();
+        codeBytes.reset();
+        return b;
+    }
+
+    private void pushInt(int v) throws IOException {
+        if (v >= -1 && v <= 5) {
+            code.writeByte(ICONST_0 + v);
+        } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+            code.writeByte(BIPUSH);
+            code.writeByte(v);
+        } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+            code.writeByte(SIPUSH);
+            code.writeShort(v);
+        } else {
+            int idx = intConst(v);
+            if (idx < 256) {
+                code.writeByte(LDC);
+                code.writeByte(idx);
+            } else {
+                code.writeByte(LDC_W);
+                code.writeShort(idx);
+            }
+        }
+    }
+
+    private int utf8(String s) throws IOException {
+        Integer idx = poolIndex.get("U" + s);
+        if (idx == null) {
+            pool.writeByte(CONSTANT_Utf8);
+            pool.writeUTF(s);
+            idx = addEntry("U" + s);
+        }
+        return idx;
+    }
+
+    private int intConst(int v) throws IOException {
+        Integer idx = poolIndex.get("I" + v);
+        if (idx == null) {
+            pool.writeByte(CONSTANT_Integer);
+            pool.writeInt(v);
+            idx = addEntry("I" + v);
+        }
+        return idx;
+    }
+
+    private int classRef(String name) throws IOException {
+        Integer idx = poolIndex.get("C" + name);
+        if (idx == null) {
+            int nameIdx = utf8(name);
+            pool.writeByte(CONSTANT_Class);
+            pool.writeShort(nameIdx);
+            idx = addEntry("C" + name);
+        }
+        return idx;
+    }
+
+    private int methodRef(String owner, String name, String desc) throws IOException {
+        String key = "M" + owner + "." + name + desc;
+        Integer idx = poolIndex.get(key);
+        if (idx == null) {
+            int classIdx = classRef(owner);
+            int nameIdx = utf8(name);
+            int descIdx = utf8(desc);
+            pool.writeByte(CONSTANT_NameAndType);
+            pool.writeShort(nameIdx);
+            pool.writeShort(descIdx);
+            int natIdx = addEntry("N" + name + desc);
+            pool.writeByte(CONSTANT_Methodref);
+            pool.writeShort(classIdx);
+            pool.writeShort(natIdx);
+            idx = addEntry(key);
+        }
+        return idx;
+    }
+
+    private int addEntry(String key) {
+        int idx = poolCount++;
+        poolIndex.put(key, idx);
+        return idx;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Z80Block
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+/**
+ * Z80Block
+ * <p>
+ * A straight line run of ROM instructions, ending with a branch or before an instruction
+ * the block ops don't handle. Subclasses are generated at runtime, see BlockClassWriter.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public abstract class Z80Block {
+
+    //address of the first and of the last instruction
+    int pc, lastPc;
+    //number of instructions
+    int length;
+    //cycles when every branch is taken, a block only runs when they fit in the budget
+    int maxCycles;
+    //flagQ of the last instruction
+    boolean lastQ;
+
+    protected Z80Block() {
+    }
+
+    /**
+     * Runs the block, PC points to the next instruction when it returns.
+     *
+     * @return the cycles spent
+     */
+    public abstract int run(Z80BlockOps ops);
+
+    public int getPc() {
+        return pc;
+    }
+
+    public int getLastPc() {
+        return lastPc;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getMaxCycles() {
+        return maxCycles;
+    }
+
+    @Override
+    public String toString() {
+        return "Z80Block{pc=" + Integer.toHexString(pc) + ", length=" + length + ", maxCycles=" + maxCycles + "}";
+    }
+}
@@ -0,0 +1,927 @@
+/*
+ * Z80BlockOps
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+import com.fbdev.helios.z80.Z80MemIoOps;
+import z80core.Z80;
+
+import static com.fbdev.helios.z80.Z80FlagTables.*;
+
+/**
+ * Z80BlockOps
+ * <p>
+ * The operations a compiled block is made of, they work directly on the z80core registers
+ * so that the core state is always up to date and no syncing is needed when switching between
+ * blocks and the interpreter.
+ * Memory accesses are untimed, a block adds up the cycles of its instructions.
+ * Semantics, flags and memptr follow the z80core implementation.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public final class Z80BlockOps {
+
+    public static final int REG_B = 0, REG_C = 1, REG_D = 2, REG_E = 3, REG_H = 4, REG_L = 5, REG_A = 7;
+    public static final int REG_IXH = 8, REG_IXL = 9, REG_IYH = 10, REG_IYL = 11;
+    public static final int RP_BC = 0, RP_DE = 1, RP_HL = 2, RP_SP = 3, RP_AF = 4, RP_IX = 5, RP_IY = 6;
+    public static final int ALU_ADD = 0, ALU_ADC = 1, ALU_SUB = 2, ALU_SBC = 3, ALU_AND = 4, ALU_XOR = 5,
+            ALU_OR = 6, ALU_CP = 7;
+    public static final int ACC_RLCA = 0, ACC_RRCA = 1, ACC_RLA = 2, ACC_RRA = 3, ACC_DAA = 4, ACC_CPL = 5,
+            ACC_NEG = 6;
+    public static final int BLOCK_LDI = 0, BLOCK_LDD = 1, BLOCK_CPI = 2, BLOCK_CPD = 3;
+    //ROT_IDX, RES_IDX and SET_IDX also copy the result to a register, 6 means no copy
+    public static final int NO_REG = 6;
+
+    private static final int JR_TAKEN_CYCLES = 5, CALL_TAKEN_CYCLES = 7, RET_TAKEN_CYCLES = 6,
+            REPEAT_CYCLES = 5;
+
+    private final Z80 z;
+    private final Z80MemIoOps mem;
+
+    public Z80BlockOps(Z80 z, Z80MemIoOps mem) {
+        this.z = z;
+        this.mem = mem;
+    }
+
+    private int read8(int address) {
+        return mem.read8(address & 0xFFFF);
+    }
+
+    private void write8(int address, int value) {
+        mem.write8(address & 0xFFFF, value & 0xFF);
+    }
+
+    private int read16(int address) {
+        return read8(address) | read8(address + 1) << 8;
+    }
+
+    private void write16(int address, int value) {
+        write8(address, value);
+        write8(address + 1, value >>> 8);
+    }
+
+    private int getReg(int r) {
+        switch (r) {
+            case REG_B:
+                return z.getRegB();
+            case REG_C:
+                return z.getRegC();
+            case REG_D:
+                return z.getRegD();
+            case REG_E:
+                return z.getRegE();
+            case REG_H:
+                return z.getRegH();
+            case REG_L:
+                return z.getRegL();
+            case REG_A:
+                return z.getRegA();
+            case REG_IXH:
+                return z.getRegIX() >>> 8;
+            case REG_IXL:
+                return z.getRegIX() & 0xFF;
+            case REG_IYH:
+                return z.getRegIY() >>> 8;
+            case REG_IYL:
+                return z.getRegIY() & 0xFF;
+            default:
+                throw new IllegalArgumentException("Invalid register: " + r);
+        }
+    }
+
+    private void setReg(int r, int value) {
+        value &= 0xFF;
+        switch (r) {
+            case REG_B:
+                z.setRegB(value);
+                break;
+            case REG_C:
+                z.setRegC(value);
+                break;
+            case REG_D:
+                z.setRegD(value);
+                break;
+            case REG_E:
+                z.setRegE(value);
+                break;
+            case REG_H:
+                z.setRegH(value);
+                break;
+            case REG_L:
+                z.setRegL(value);
+                break;
+            case REG_A:
+                z.setRegA(value);
+                break;
+            case REG_IXH:
+                z.setRegIX(value << 8 | z.getRegIX() & 0xFF);
+                break;
+            case REG_IXL:
+                z.setRegIX(z.getRegIX() & 0xFF00 | value);
+                break;
+            case REG_IYH:
+                z.setRegIY(value << 8 | z.getRegIY() & 0xFF);
+                break;
+            case REG_IYL:
+                z.setRegIY(z.getRegIY() & 0xFF00 | value);
+                break;
+            case NO_REG:
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid register: " + r);
+        }
+    }
+
+    private int getRp(int rp) {
+        switch (rp) {
+            case RP_BC:
+                return z.getRegBC();
+            case RP_DE:
+                return z.getRegDE();
+            case RP_HL:
+                return z.getRegHL();
+            case RP_SP:
+                return z.getRegSP();
+            case RP_AF:
+                return z.getRegAF();
+            case RP_IX:
+                return z.getRegIX();
+            case RP_IY:
+                return z.getRegIY();
+            default:
+                throw new IllegalArgumentException("Invalid register pair: " + rp);
+        }
+    }
+
+    private void setRp(int rp, int value) {
+        value &= 0xFFFF;
+        switch (rp) {
+            case RP_BC:
+                z.setRegBC(value);
+                break;
+            case RP_DE:
+                z.setRegDE(value);
+                break;
+            case RP_HL:
+                z.setRegHL(value);
+                break;
+            case RP_SP:
+                z.setRegSP(value);
+                break;
+            case RP_AF:
+                z.setRegAF(value);
+                break;
+            case RP_IX:
+                z.setRegIX(value);
+                break;
+            case RP_IY:
+                z.setRegIY(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid register pair: " + rp);
+        }
+    }
+
+    private int idxAddress(int idx, int d) {
+        int address = (getRp(idx) + d) & 0xFFFF;
+        z.setMemPtr(address);
+        return address;
+    }
+
+    private boolean condition(int cc) {
+        int f = z.getFlags();
+        switch (cc) {
+            case 0:
+                return (f & ZERO_MASK) == 0;
+            case 1:
+                return (f & ZERO_MASK) != 0;
+            case 2:
+                return (f & CARRY_MASK) == 0;
+            case 3:
+                return (f & CARRY_MASK) != 0;
+            case 4:
+                return (f & PARITY_MASK) == 0;
+            case 5:
+                return (f & PARITY_MASK) != 0;
+            case 6:
+                return (f & SIGN_MASK) == 0;
+            default:
+                return (f & SIGN_MASK) != 0;
+        }
+    }
+
+    private void setFlags(int sz, boolean carry) {
+        z.setFlags(sz | (carry ? CARRY_MASK : 0));
+    }
+
+    private void push16(int value) {
+        int sp = (z.getRegSP() - 1) & 0xFFFF;
+        write8(sp, value >>> 8);
+        sp = (sp - 1) & 0xFFFF;
+        write8(sp, value);
+        z.setRegSP(sp);
+    }
+
+    private int pop16() {
+        int sp = z.getRegSP();
+        int value = read16(sp);
+        z.setRegSP(sp + 2);
+        return value;
+    }
+
+    //ALU
+
+    private void alu(int op, int v) {
+        int a = z.getRegA();
+        boolean carry = z.isCarryFlag();
+        int res, sz;
+        switch (op) {
+            case ALU_ADD:
+            case ALU_ADC:
+                res = a + v + (op == ALU_ADC && carry ? 1 : 0);
+                sz = SZ53N_ADD[res & 0xFF];
+                if (op == ALU_ADD ? (res & 0xF) < (a & 0xF) : ((a ^ v ^ res) & 0x10) != 0) {
+                    sz |= HALFCARRY_MASK;
+                }
+                if (((a ^ ~v) & (a ^ (res & 0xFF))) > 127) {
+                    sz |= PARITY_MASK;
+                }
+                z.setRegA(res);
+                setFlags(sz, res > 0xFF);
+                break;
+            case ALU_SUB:
+            case ALU_SBC:
+            case ALU_CP:
+                res = a - v - (op == ALU_SBC && carry ? 1 : 0);
+                int r8 = res & 0xFF;
+                sz = op == ALU_CP ? SZ53N_ADD[v] & FLAG_53_MASK | SZ53N_SUB[r8] & 0xD2 : SZ53N_SUB[r8];
+                if (op == ALU_SBC ? ((a ^ v ^ r8) & 0x10) != 0 : (r8 & 0xF) > (a & 0xF)) {
+                    sz |= HALFCARRY_MASK;
+                }
+                if (((a ^ v) & (a ^ r8)) > 127) {
+                    sz |= PARITY_MASK;
+                }
+                if (op != ALU_CP) {
+                    z.setRegA(r8);
+                }
+                setFlags(sz, res < 0);
+                break;
+            case ALU_AND:
+                a &= v;
+                z.setRegA(a);
+                setFlags(SZ53PN_ADD[a] | HALFCARRY_MASK, false);
+                break;
+            case ALU_XOR:
+                a = (a ^ v) & 0xFF;
+                z.setRegA(a);
+                setFlags(SZ53PN_ADD[a], false);
+                break;
+            default:
+                a = (a | v) & 0xFF;
+                z.setRegA(a);
+                setFlags(SZ53PN_ADD[a], false);
+                break;
+        }
+    }
+
+    private int inc8(int v) {
+        v = (v + 1) & 0xFF;
+        int sz = SZ53N_ADD[v];
+        if ((v & 0xF) == 0) {
+            sz |= HALFCARRY_MASK;
+        }
+        if (v == 0x80) {
+            sz |= PARITY_MASK;
+        }
+        setFlags(sz, z.isCarryFlag());
+        return v;
+    }
+
+    private int dec8(int v) {
+        v = (v - 1) & 0xFF;
+        int sz = SZ53N_SUB[v];
+        if ((v & 0xF) == 0xF) {
+            sz |= HALFCARRY_MASK;
+        }
+        if (v == 0x7F) {
+            sz |= PARITY_MASK;
+        }
+        setFlags(sz, z.isCarryFlag());
+        return v;
+    }
+
+    private int rot(int op, int v) {
+        boolean carry = z.isCarryFlag();
+        boolean newCarry;
+        switch (op) {
+            case 0: //RLC
+                newCarry = v > 127;
+                v = (v << 1 | v >>> 7) & 0xFF;
+                break;
+            case 1: //RRC
+                newCarry = (v & 1) != 0;
+                v = (v >>> 1 | v << 7) & 0xFF;
+                break;
+            case 2: //RL
+                newCarry = v > 127;
+                v = (v << 1 | (carry ? 1 : 0)) & 0xFF;
+                break;
+            case 3: //RR
+                newCarry = (v & 1) != 0;
+                v = v >>> 1 | (carry ? 0x80 : 0);
+                break;
+            case 4: //SLA
+                newCarry = v > 127;
+                v = (v << 1) & 0xFE;
+                break;
+            case 5: //SRA
+                newCarry = (v & 1) != 0;
+                v = v >> 1 | v & 0x80;
+                break;
+            case 6: //SLL
+                newCarry = v > 127;
+                v = (v << 1 | 1) & 0xFF;
+                break;
+            default: //SRL
+                newCarry = (v & 1) != 0;
+                v >>>= 1;
+                break;
+        }
+        setFlags(SZ53PN_ADD[v], newCarry);
+        return v;
+    }
+
+    private void bit(int mask, int v) {
+        boolean zero = (mask & v) == 0;
+        int sz = SZ53N_ADD[v] & ~0xC4 | HALFCARRY_MASK;
+        if (zero) {
+            sz |= ZERO_MASK | PARITY_MASK;
+        }
+        if (mask == 0x80 && !zero) {
+            sz |= SIGN_MASK;
+        }
+        setFlags(sz, z.isCarryFlag());
+    }
+
+    //bit n,(HL) and bit n,(IX+d) take bits 5 and 3 from the high byte of memptr
+    private void bitMemory(int mask, int v, int address) {
+        bit(mask, v);
+        int f = z.getFlags();
+        z.setFlags(f & 0xD4 | f & CARRY_MASK | address >>> 8 & FLAG_53_MASK);
+    }
+
+    //8 bit loads
+
+    public void nop() {
+    }
+
+    public void ldRR(int dst, int src) {
+        setReg(dst, getReg(src));
+    }
+
+    public void ldRN(int r, int n) {
+        setReg(r, n);
+    }
+
+    public void ldRHl(int r) {
+        setReg(r, read8(z.getRegHL()));
+    }
+
+    public void ldHlR(int r) {
+        write8(z.getRegHL(), getReg(r));
+    }
+
+    public void ldHlN(int n) {
+        write8(z.getRegHL(), n);
+    }
+
+    public void ldRIdx(int r, int idx, int d) {
+        setReg(r, read8(idxAddress(idx, d)));
+    }
+
+    public void ldIdxR(int idx, int d, int r) {
+        write8(idxAddress(idx, d), getReg(r));
+    }
+
+    public void ldIdxN(int idx, int d, int n) {
+        write8(idxAddress(idx, d), n);
+    }
+
+    public void ldARp(int rp) {
+        int address = getRp(rp);
+        z.setRegA(read8(address));
+        z.setMemPtr(address + 1);
+    }
+
+    public void ldRpA(int rp) {
+        int address = getRp(rp);
+        int a = z.getRegA();
+        write8(address, a);
+        z.setMemPtr(a << 8 | (address + 1) & 0xFF);
+    }
+
+    public void ldANn(int nn) {
+        z.setRegA(read8(nn));
+        z.setMemPtr(nn + 1);
+    }
+
+    public void ldNnA(int nn) {
+        int a = z.getRegA();
+        write8(nn, a);
+        z.setMemPtr(a << 8 | (nn + 1) & 0xFF);
+    }
+
+    public void ldIA() {
+        z.setRegI(z.getRegA());
+    }
+
+    //16 bit loads
+
+    public void ldRpNn(int rp, int nn) {
+        setRp(rp, nn);
+    }
+
+    public void ldRpMnn(int rp, int nn) {
+        setRp(rp, read16(nn));
+        z.setMemPtr(nn + 1);
+    }
+
+    public void ldMnnRp(int nn, int rp) {
+        write16(nn, getRp(rp));
+        z.setMemPtr(nn + 1);
+    }
+
+    public void ldSpRp(int rp) {
+        z.setRegSP(getRp(rp));
+    }
+
+    public void push(int rp) {
+        push16(getRp(rp));
+    }
+
+    public void pop(int rp) {
+        setRp(rp, pop16());
+    }
+
+    //exchanges
+
+    public void exAf() {
+        int af = z.getRegAF();
+        z.setRegAF(z.getRegAFx());
+        z.setRegAFx(af);
+    }
+
+    public void exx() {
+        int v = z.getRegBC();
+        z.setRegBC(z.getRegBCx());
+        z.setRegBCx(v);
+        v = z.getRegDE();
+        z.setRegDE(z.getRegDEx());
+        z.setRegDEx(v);
+        v = z.getRegHL();
+        z.setRegHL(z.getRegHLx());
+        z.setRegHLx(v);
+    }
+
+    public void exDeHl() {
+        int de = z.getRegDE();
+        z.setRegDE(z.getRegHL());
+        z.setRegHL(de);
+    }
+
+    public void exSpRp(int rp) {
+        int sp = z.getRegSP();
+        int v = read16(sp);
+        int old = getRp(rp);
+        write8(sp + 1, old >>> 8);
+        write8(sp, old);
+        setRp(rp, v);
+        z.setMemPtr(v);
+    }
+
+    //arithmetic
+
+    public void incR(int r) {
+        setReg(r, inc8(getReg(r)));
+    }
+
+    public void decR(int r) {
+        setReg(r, dec8(getReg(r)));
+    }
+
+    public void incHl() {
+        int address = z.getRegHL();
+        write8(address, inc8(read8(address)));
+    }
+
+    public void decHl() {
+        int address = z.getRegHL();
+        write8(address, dec8(read8(address)));
+    }
+
+    public void incIdx(int idx, int d) {
+        int address = idxAddress(idx, d);
+        write8(address, inc8(read8(address)));
+    }
+
+    public void decIdx(int idx, int d) {
+        int address = idxAddress(idx, d);
+        write8(address, dec8(read8(address)));
+    }
+
+    public void incRp(int rp) {
+        setRp(rp, getRp(rp) + 1);
+    }
+
+    public void decRp(int rp) {
+        setRp(rp, getRp(rp) - 1);
+    }
+
+    public void addRp(int dst, int src) {
+        int reg16 = getRp(dst);
+        int res = reg16 + getRp(src);
+        int f = z.getFlags();
+        int sz = f & 0xC4 | res >>> 8 & FLAG_53_MASK;
+        if ((res & 0xFFF) < (reg16 & 0xFFF)) {
+            sz |= HALFCARRY_MASK;
+        }
+        setFlags(sz, res > 0xFFFF);
+        z.setMemPtr(reg16 + 1);
+        setRp(dst, res);
+    }
+
+    public void adcHl(int rp) {
+        adcSbc16(getRp(rp), false);
+    }
+
+    public void sbcHl(int rp) {
+        adcSbc16(getRp(rp), true);
+    }
+
+    private void adcSbc16(int v, boolean sub) {
+        int hl = z.getRegHL();
+        int carry = z.isCarryFlag() ? 1 : 0;
+        z.setMemPtr(hl + 1);
+        int res = sub ? hl - v - carry : hl + v + carry;
+        int r16 = res & 0xFFFF;
+        int sz = (sub ? SZ53N_SUB : SZ53N_ADD)[r16 >>> 8];
+        if (r16 != 0) {
+            sz &= ~ZERO_MASK;
+        }
+        if (((r16 ^ hl ^ v) & 0x1000) != 0) {
+            sz |= HALFCARRY_MASK;
+        }
+        if (((hl ^ (sub ? v : ~v)) & (hl ^ r16)) > Short.MAX_VALUE) {
+            sz |= PARITY_MASK;
+        }
+        z.setRegHL(r16);
+        setFlags(sz, sub ? res < 0 : res > 0xFFFF);
+    }
+
+    public void aluR(int op, int r) {
+        alu(op, getReg(r));
+    }
+
+    public void aluN(int op, int n) {
+        alu(op, n);
+    }
+
+    public void aluHl(int op) {
+        alu(op, read8(z.getRegHL()));
+    }
+
+    public void aluIdx(int op, int idx, int d) {
+        alu(op, read8(idxAddress(idx, d)));
+    }
+
+    public void acc(int op) {
+        int a = z.getRegA();
+        int f = z.getFlags();
+        boolean carry = (f & CARRY_MASK) != 0;
+        switch (op) {
+            case ACC_RLCA:
+                carry = a > 127;
+                a = (a << 1 | a >>> 7) & 0xFF;
+                break;
+            case ACC_RRCA:
+                carry = (a & 1) != 0;
+                a = (a >>> 1 | a << 7) & 0xFF;
+                break;
+            case ACC_RLA:
+                boolean rl = a > 127;
+                a = (a << 1 | (carry ? 1 : 0)) & 0xFF;
+                carry = rl;
+                break;
+            case ACC_RRA:
+                boolean rr = (a & 1) != 0;
+                a = a >>> 1 | (carry ? 0x80 : 0);
+                carry = rr;
+                break;
+            case ACC_DAA:
+                daa(a, f);
+                return;
+            case ACC_CPL:
+                a ^= 0xFF;
+                z.setRegA(a);
+                setFlags(f & 0xC4 | HALFCARRY_MASK | a & FLAG_53_MASK | ADDSUB_MASK, carry);
+                return;
+            default: //NEG
+                z.setRegA(0);
+                alu(ALU_SUB, a);
+                return;
+        }
+        z.setRegA(a);
+        setFlags(f & 0xC4 | a & FLAG_53_MASK, carry);
+    }
+
+    private void daa(int a, int f) {
+        int add = 0;
+        boolean carry = (f & CARRY_MASK) != 0;
+        if ((f & HALFCARRY_MASK) != 0 || (a & 0xF) > 9) {
+            add = 6;
+        }
+        if (carry || a > 0x99) {
+            add |= 0x60;
+        }
+        if (a > 0x99) {
+            carry = true;
+        }
+        boolean sub = (f & ADDSUB_MASK) != 0;
+        alu(sub ? ALU_SUB : ALU_ADD, add);
+        a = z.getRegA();
+        setFlags(z.getFlags() & HALFCARRY_MASK | (sub ? SZ53PN_SUB : SZ53PN_ADD)[a], carry);
+    }
+
+    public void scf(int lastQ) {
+        int f = z.getFlags();
+        int sz = f & 0xFE;
+        int q = lastQ != 0 ? sz : 0;
+        setFlags(sz & 0xC4 | ((q ^ sz) | z.getRegA()) & FLAG_53_MASK, true);
+    }
+
+    public void ccf(int lastQ) {
+        int f = z.getFlags();
+        int sz = f & 0xFE;
+        int q = lastQ != 0 ? sz : 0;
+        boolean carry = (f & CARRY_MASK) != 0;
+        sz = sz & 0xC4 | ((q ^ sz) | z.getRegA()) & FLAG_53_MASK;
+        if (carry) {
+            sz |= HALFCARRY_MASK;
+        }
+        setFlags(sz, !carry);
+    }
+
+    //cpu control
+
+    public void di() {
+        z.setIFF1(false);
+        z.setIFF2(false);
+    }
+
+    public void im(int mode) {
+        z.setIM(Z80.IntMode.values()[mode]);
+    }
+
+    //rotates and bit ops
+
+    public void rotR(int op, int r) {
+        setReg(r, rot(op, getReg(r)));
+    }
+
+    public void rotHl(int op) {
+        int address = z.getRegHL();
+        write8(address, rot(op, read8(address)));
+    }
+
+    public void rotIdx(int opReg, int idx, int d) {
+        int address = idxAddress(idx, d);
+        int v = rot(opReg & 7, read8(address));
+        write8(address, v);
+        setReg(opReg >> 3, v);
+    }
+
+    public void bitR(int bit, int r) {
+        bit(1 << bit, getReg(r));
+    }
+
+    public void bitHl(int bit) {
+        bitMemory(1 << bit, read8(z.getRegHL()), z.getMemPtr());
+    }
+
+    public void bitIdx(int bit, int idx, int d) {
+        int address = idxAddress(idx, d);
+        bitMemory(1 << bit, read8(address), address);
+    }
+
+    public void resR(int bit, int r) {
+        setReg(r, getReg(r) & ~(1 << bit));
+    }
+
+    public void resHl(int bit) {
+        int address = z.getRegHL();
+        write8(address, read8(address) & ~(1 << bit));
+    }
+
+    public void resIdx(int bitReg, int idx, int d) {
+        int address = idxAddress(idx, d);
+        int v = read8(address) & ~(1 << (bitReg & 7));
+        write8(address, v);
+        setReg(bitReg >> 3, v);
+    }
+
+    public void setR(int bit, int r) {
+        setReg(r, getReg(r) | 1 << bit);
+    }
+
+    public void setHl(int bit) {
+        int address = z.getRegHL();
+        write8(address, read8(address) | 1 << bit);
+    }
+
+    public void setIdx(int bitReg, int idx, int d) {
+        int address = idxAddress(idx, d);
+        int v = read8(address) | 1 << (bitReg & 7);
+        write8(address, v);
+        setReg(bitReg >> 3, v);
+    }
+
+    public void rrd() {
+        int address = z.getRegHL();
+        int a = z.getRegA();
+        int v = read8(address);
+        z.setRegA(a & 0xF0 | v & 0xF);
+        write8(address, v >>> 4 | (a & 0xF) << 4);
+        setFlags(SZ53PN_ADD[z.getRegA()], z.isCarryFlag());
+        z.setMemPtr(address + 1);
+    }
+
+    public void rld() {
+        int address = z.getRegHL();
+        int a = z.getRegA();
+        int v = read8(address);
+        z.setRegA(a & 0xF0 | v >>> 4);
+        write8(address, v << 4 | a & 0xF);
+        setFlags(SZ53PN_ADD[z.getRegA()], z.isCarryFlag());
+        z.setMemPtr(address + 1);
+    }
+
+    //LDI, LDD, CPI, CPD
+    public void block(int op) {
+        int hl = z.getRegHL();
+        int step = (op & 1) == 0 ? 1 : -1;
+        int v = read8(hl);
+        int bc = (z.getRegBC() - 1) & 0xFFFF;
+        int a = z.getRegA();
+        int sz;
+        boolean carry = z.isCarryFlag();
+        if (op < BLOCK_CPI) {
+            int de = z.getRegDE();
+            write8(de, v);
+            z.setRegDE(de + step);
+            int n = v + a;
+            sz = z.getFlags() & 0xC0 | n & BIT3_MASK;
+            if ((n & 2) != 0) {
+                sz |= BIT5_MASK;
+            }
+        } else {
+            alu(ALU_CP, v);
+            sz = z.getFlags();
+            int n = a - v - ((sz & HALFCARRY_MASK) != 0 ? 1 : 0);
+            sz = sz & 0xD2 | n & BIT3_MASK;
+            if ((n & 2) != 0) {
+                sz |= BIT5_MASK;
+            }
+            z.setMemPtr(z.getMemPtr() + step);
+        }
+        if (bc != 0) {
+            sz |= PARITY_MASK;
+        }
+        z.setRegHL(hl + step);
+        z.setRegBC(bc);
+        setFlags(sz, carry);
+    }
+
+    //branches, they set PC and return the extra cycles when taken
+
+    public int jp(int nn) {
+        z.setRegPC(nn);
+        z.setMemPtr(nn);
+        return 0;
+    }
+
+    public int jpCc(int cc, int nn, int next) {
+        z.setMemPtr(nn);
+        z.setRegPC(condition(cc) ? nn : next);
+        return 0;
+    }
+
+    public int jr(int target) {
+        z.setRegPC(target);
+        z.setMemPtr(target);
+        return 0;
+    }
+
+    public int jrCc(int cc, int target, int next) {
+        if (condition(cc)) {
+            return jr(target) + JR_TAKEN_CYCLES;
+        }
+        z.setRegPC(next);
+        return 0;
+    }
+
+    public int djnz(int target, int next) {
+        int b = (z.getRegB() - 1) & 0xFF;
+        z.setRegB(b);
+        if (b != 0) {
+            return jr(target) + JR_TAKEN_CYCLES;
+        }
+        z.setRegPC(next);
+        return 0;
+    }
+
+    public int call(int nn, int ret) {
+        z.setMemPtr(nn);
+        push16(ret);
+        z.setRegPC(nn);
+        return 0;
+    }
+
+    public int callCc(int cc, int nn, int ret) {
+        if (condition(cc)) {
+            return call(nn, ret) + CALL_TAKEN_CYCLES;
+        }
+        z.setMemPtr(nn);
+        z.setRegPC(ret);
+        return 0;
+    }
+
+    public int ret() {
+        int pc = pop16();
+        z.setRegPC(pc);
+        z.setMemPtr(pc);
+        return 0;
+    }
+
+    public int retCc(int cc, int next) {
+        if (condition(cc)) {
+            return ret() + RET_TAKEN_CYCLES;
+        }
+        z.setRegPC(next);
+        return 0;
+    }
+
+    public int rst(int address, int ret) {
+        push16(ret);
+        z.setRegPC(address);
+        z.setMemPtr(address);
+        return 0;
+    }
+
+    public int jpRp(int rp) {
+        z.setRegPC(getRp(rp));
+        return 0;
+    }
+
+    //LDIR, LDDR, CPIR, CPDR: a repeat jumps back to the instruction itself
+    public int blockRepeat(int op, int pc) {
+        block(op);
+        int f = z.getFlags();
+        boolean repeat = (f & PARITY_MASK) != 0 && (op < BLOCK_CPI || (f & ZERO_MASK) == 0);
+        if (repeat) {
+            z.setRegPC(pc);
+            z.setMemPtr(pc + 1);
+            return REPEAT_CYCLES;
+        }
+        z.setRegPC(pc + 2);
+        return 0;
+    }
+
+    //end of a block that doesn't end with a branch
+    public void setPc(int pc) {
+        z.setRegPC(pc);
+    }
+
+    //R increments once per opcode fetch, bit 7 is preserved
+    public void endBlock(int fetches) {
+        int r = z.getRegR();
+        z.setRegR((r & 0x80) | ((r + fetches) & 0x7F));
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Z80Decoder
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+import com.fbdev.helios.model.BaseBusProvider;
+
+import static com.fbdev.helios.z80.jit.Z80BlockOps.*;
+
+/**
+ * Z80Decoder
+ * <p>
+ * Decodes an instruction into a Z80Op, operands and cycles, the timings match the z80core ones.
+ * Instructions that the block ops don't handle (HALT, EI, RETI/RETN, IO, LD A,R/I, LD R,A and
+ * prefix chains) decode to UNSUPPORTED and are left to the z80core.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class Z80Decoder {
+
+    //unprefixed opcodes, branches not taken
+    private static final int[] CYCLES = {
+            4, 10, 7, 6, 4, 4, 7, 4, 4, 11, 7, 6, 4, 4, 7, 4,
+            8, 10, 7, 6, 4, 4, 7, 4, 12, 11, 7, 6, 4, 4, 7, 4,
+            7, 10, 16, 6, 4, 4, 7, 4, 7, 11, 16, 6, 4, 4, 7, 4,
+            7, 10, 13, 6, 11, 11, 10, 4, 7, 11, 13, 6, 4, 4, 7, 4,
+            4, 4, 4, 4, 4, 4, 7, 4, 4, 4, 4, 4, 4, 4, 7, 4,
+            4, 4, 4, 4, 4, 4, 7, 4, 4, 4, 4, 4, 4, 4, 7, 4,
+            4, 4, 4, 4, 4, 4, 7, 4, 4, 4, 4, 4, 4, 4, 7, 4,
+            7, 7, 7, 7, 7, 7, 4, 7, 4, 4, 4, 4, 4, 4, 7, 4,
+            4, 4, 4, 4, 4, 4, 7, 4, 4, 4, 4, 4, 4, 4, 7, 4,
+            4, 4, 4, 4, 4, 4, 7, 4, 4, 4, 4, 4, 4, 4, 7, 4,
+            4, 4, 4, 4, 4, 4, 7, 4, 4, 4, 4, 4, 4, 4, 7, 4,
+            4, 4, 4, 4, 4, 4, 7, 4, 4, 4, 4, 4, 4, 4, 7, 4,
+            5, 10, 10, 10, 10, 11, 7, 11, 5, 10, 10, 0, 10, 17, 7, 11,
+            5, 10, 10, 11, 10, 11, 7, 11, 5, 4, 10, 11, 10, 0, 7, 11,
+            5, 10, 10, 19, 10, 11, 7, 11, 5, 4, 10, 4, 10, 0, 7, 11,
+            5, 10, 10, 4, 10, 11, 7, 11, 5, 6, 10, 4, 10, 0, 7, 11
+    };
+
+    private static final int[] RP_TABLE = {RP_BC, RP_DE, RP_HL, RP_SP};
+    private static final int[] RP2_TABLE = {RP_BC, RP_DE, RP_HL, RP_AF};
+
+    private final BaseBusProvider bus;
+
+    public Z80Decoder(BaseBusProvider bus) {
+        this.bus = bus;
+    }
+
+    private int read8(int address) {
+        return bus.read8(address & 0xFFFF);
+    }
+
+    private int read16(int address) {
+        return read8(address) | read8(address + 1) << 8;
+    }
+
+    public Z80Instruction decode(int pc, Z80Instruction ins) {
+        int opcode = read8(pc);
+        switch (opcode) {
+            case 0xCB:
+                return decodeCB(pc, ins);
+            case 0xED:
+                return decodeED(pc, ins);
+            case 0xDD:
+                return decodeDDFD(pc, RP_IX, ins);
+            case 0xFD:
+                return decodeDDFD(pc, RP_IY, ins);
+        }
+        return decodeMain(pc, opcode, ins);
+    }
+
+    private Z80Instruction decodeMain(int pc, int opcode, Z80Instruction ins) {
+        int x = opcode >> 6, y = (opcode >> 3) & 7, z = opcode & 7, p = y >> 1, q = y & 1;
+        int cycles = CYCLES[opcode];
+        switch (x) {
+            case 0:
+                return decodeX0(pc, y, z, p, q, cycles, ins);
+            case 1:
+                if (opcode == 0x76) {
+                    return ins.set(Z80Op.UNSUPPORTED, 1, cycles);
+                } else if (z == 6) {
+                    return ins.set(Z80Op.LD_R_HL, 1, cycles).args(y);
+                } else if (y == 6) {
+                    return ins.set(Z80Op.LD_HL_R, 1, cycles).args(z);
+                }
+                return ins.set(Z80Op.LD_R_R, 1, cycles).args(y, z);
+            case 2:
+                return z == 6 ? ins.set(Z80Op.ALU_HL, 1, cycles).args(y) :
+                        ins.set(Z80Op.ALU_R, 1, cycles).args(y, z);
+            default:
+                return decodeX3(pc, y, z, p, q, cycles, ins);
+        }
+    }
+
+    private Z80Instruction decodeX0(int pc, int y, int z, int p, int q, int cycles, Z80Instruction ins) {
+        switch (z) {
+            case 0:
+                switch (y) {
+                    case 0:
+                        return ins.set(Z80Op.NOP, 1, cycles);
+                    case 1:
+                        return ins.set(Z80Op.EX_AF, 1, cycles);
+                    case 2:
+                        return ins.set(Z80Op.DJNZ, 2, cycles).args(relative(pc), pc + 2).taken(5);
+                    case 3:
+                        return ins.set(Z80Op.JR, 2, cycles).args(relative(pc));
+                    default:
+                        return ins.set(Z80Op.JR_CC, 2, cycles).args(y - 4, relative(pc), pc + 2).taken(5);
+                }
+            case 1:
+                return q == 0 ? ins.set(Z80Op.LD_RP_NN, 3, cycles).args(RP_TABLE[p], read16(pc + 1)) :
+                        ins.set(Z80Op.ADD_RP, 1, cycles).args(RP_HL, RP_TABLE[p]);
+            case 2:
+                switch (y) {
+                    case 0:
+                        return ins.set(Z80Op.LD_RP_A, 1, cycles).args(RP_BC);
+                    case 1:
+                        return ins.set(Z80Op.LD_A_RP, 1, cycles).args(RP_BC);
+                    case 2:
+                        return ins.set(Z80Op.LD_RP_A, 1, cycles).args(RP_DE);
+                    case 3:
+                        return ins.set(Z80Op.LD_A_RP, 1, cycles).args(RP_DE);
+                    case 4:
+                        return ins.set(Z80Op.LD_MNN_RP, 3, cycles).args(read16(pc + 1), RP_HL);
+                    case 5:
+                        return ins.set(Z80Op.LD_RP_MNN, 3, cycles).args(RP_HL, read16(pc + 1));
+                    case 6:
+                        return ins.set(Z80Op.LD_NN_A, 3, cycles).args(read16(pc + 1));
+                    default:
+                        return ins.set(Z80Op.LD_A_NN, 3, cycles).args(read16(pc + 1));
+                }
+            case 3:
+                return ins.set(q == 0 ? Z80Op.INC_RP : Z80Op.DEC_RP, 1, cycles).args(RP_TABLE[p]);
+            case 4:
+                return y == 6 ? ins.set(Z80Op.INC_HL, 1, cycles) : ins.set(Z80Op.INC_R, 1, cycles).args(y);
+            case 5:
+                return y == 6 ? ins.set(Z80Op.DEC_HL, 1, cycles) : ins.set(Z80Op.DEC_R, 1, cycles).args(y);
+            case 6:
+                return y == 6 ? ins.set(Z80Op.LD_HL_N, 2, cycles).args(read8(pc + 1)) :
+                        ins.set(Z80Op.LD_R_N, 2, cycles).args(y, read8(pc + 1));
+            default:
+                switch (y) {
+                    case 6:
+                        return ins.set(Z80Op.SCF, 1, cycles);
+                    case 7:
+                        return ins.set(Z80Op.CCF, 1, cycles);
+                    default:
+                        return ins.set(Z80Op.ACC, 1, cycles).args(y);
+                }
+        }
+    }
+
+    private Z80Instruction decodeX3(int pc, int y, int z, int p, int q, int cycles, Z80Instruction ins) {
+        switch (z) {
+            case 0:
+                return ins.set(Z80Op.RET_CC, 1, cycles).args(y, pc + 1).taken(6);
+            case 1:
+                if (q == 0) {
+                    return ins.set(Z80Op.POP, 1, cycles).args(RP2_TABLE[p]);
+                }
+                switch (p) {
+                    case 0:
+                        return ins.set(Z80Op.RET, 1, cycles);
+                    case 1:
+                        return ins.set(Z80Op.EXX, 1, cycles);
+                    case 2:
+                        return ins.set(Z80Op.JP_RP, 1, cycles).args(RP_HL);
+                    default:
+                        return ins.set(Z80Op.LD_SP_RP, 1, cycles).args(RP_HL);
+                }
+            case 2:
+                return ins.set(Z80Op.JP_CC, 3, cycles).args(y, read16(pc + 1), pc + 3);
+            case 3:
+                switch (y) {
+                    case 0:
+                        return ins.set(Z80Op.JP, 3, cycles).args(read16(pc + 1));
+                    case 4:
+                        return ins.set(Z80Op.EX_SP_RP, 1, cycles).args(RP_HL);
+                    case 5:
+                        return ins.set(Z80Op.EX_DE_HL, 1, cycles);
+                    case 6:
+                        return ins.set(Z80Op.DI, 1, cycles);
+                    default:
+                        //OUT (n),A, IN A,(n), EI
+                        return ins.set(Z80Op.UNSUPPORTED, 1, cycles);
+                }
+            case 4:
+                return ins.set(Z80Op.CALL_CC, 3, cycles).args(y, read16(pc + 1), pc + 3).taken(7);
+            case 5:
+                return q == 0 ? ins.set(Z80Op.PUSH, 1, cycles).args(RP2_TABLE[p]) :
+                        ins.set(Z80Op.CALL, 3, cycles).args(read16(pc + 1), pc + 3);
+            case 6:
+                return ins.set(Z80Op.ALU_N, 2, cycles).args(y, read8(pc + 1));
+            default:
+                return ins.set(Z80Op.RST, 1, cycles).args(y << 3, pc + 1);
+        }
+    }
+
+    private Z80Instruction decodeCB(int pc, Z80Instruction ins) {
+        int opcode = read8(pc + 1);
+        int x = opcode >> 6, y = (opcode >> 3) & 7, z = opcode & 7;
+        Z80Op op;
+        if (z == 6) {
+            op = x == 0 ? Z80Op.ROT_HL : (x == 1 ? Z80Op.BIT_HL : (x == 2 ? Z80Op.RES_HL : Z80Op.SET_HL));
+            ins.set(op, 2, x == 1 ? 12 : 15).args(y);
+        } else {
+            op = x == 0 ? Z80Op.ROT_R : (x == 1 ? Z80Op.BIT_R : (x == 2 ? Z80Op.RES_R : Z80Op.SET_R));
+            ins.set(op, 2, 8).args(y, z);
+        }
+        ins.fetches = 2;
+        return ins;
+    }
+
+    private Z80Instruction decodeED(int pc, Z80Instruction ins) {
+        int opcode = read8(pc + 1);
+        int x = opcode >> 6, y = (opcode >> 3) & 7, z = opcode & 7, p = y >> 1, q = y & 1;
+        ins.set(Z80Op.NOP, 2, 8);
+        if (x == 1) {
+            switch (z) {
+                case 2:
+                    ins.set(q == 0 ? Z80Op.SBC_HL : Z80Op.ADC_HL, 2, 15).args(RP_TABLE[p]);
+                    break;
+                case 3:
+                    if (q == 0) {
+                        ins.set(Z80Op.LD_MNN_RP, 4, 20).args(read16(pc + 2), RP_TABLE[p]);
+                    } else {
+                        ins.set(Z80Op.LD_RP_MNN, 4, 20).args(RP_TABLE[p], read16(pc + 2));
+                    }
+                    break;
+                case 4:
+                    ins.set(Z80Op.ACC, 2, 8).args(ACC_NEG);
+                    break;
+                case 6:
+                    ins.set(Z80Op.IM, 2, 8).args(Math.max(0, (y & 3) - 1));
+                    break;
+                case 7:
+                    if (y == 0) {
+                        ins.set(Z80Op.LD_I_A, 2, 9);
+                    } else if (y == 4 || y == 5) {
+                        ins.set(y == 4 ? Z80Op.RRD : Z80Op.RLD, 2, 18);
+                    } else if (y < 4) {
+                        //LD R,A, LD A,I, LD A,R
+                        ins.set(Z80Op.UNSUPPORTED, 2, 9);
+                    }
+                    break;
+                default:
+                    //IN r,(C), OUT (C),r, RETN/RETI
+                    ins.set(Z80Op.UNSUPPORTED, 2, 8);
+                    break;
+            }
+        } else if (x == 2 && y >= 4 && z <= 3) {
+            if (z >= 2) {
+                //INI, OUTI and friends
+                ins.set(Z80Op.UNSUPPORTED, 2, 16);
+            } else {
+                int block = (z << 1) | (y & 1);
+                if (y >= 6) {
+                    ins.set(Z80Op.BLOCK_REPEAT, 2, 16).args(block, pc).taken(5);
+                } else {
+                    ins.set(Z80Op.BLOCK, 2, 16).args(block);
+                }
+            }
+        } else if (opcode == 0xDD || opcode == 0xED || opcode == 0xFD) {
+            ins.set(Z80Op.UNSUPPORTED, 2, 8);
+        }
+        ins.fetches = 2;
+        return ins;
+    }
+
+    private Z80Instruction decodeDDFD(int pc, int idx, Z80Instruction ins) {
+        int opcode = read8(pc + 1);
+        int x = opcode >> 6, y = (opcode >> 3) & 7, z = opcode & 7, p = y >> 1;
+        int hi = idx == RP_IX ? REG_IXH : REG_IYH;
+        int d = (byte) read8(pc + 2);
+        boolean handled = true;
+        switch (opcode) {
+            case 0x09:
+            case 0x19:
+            case 0x29:
+            case 0x39:
+                ins.set(Z80Op.ADD_RP, 2, 15).args(idx, p == 2 ? idx : RP_TABLE[p]);
+                break;
+            case 0x21:
+                ins.set(Z80Op.LD_RP_NN, 4, 14).args(idx, read16(pc + 2));
+                break;
+            case 0x22:
+                ins.set(Z80Op.LD_MNN_RP, 4, 20).args(read16(pc + 2), idx);
+                break;
+            case 0x2A:
+                ins.set(Z80Op.LD_RP_MNN, 4, 20).args(idx, read16(pc + 2));
+                break;
+            case 0x23:
+            case 0x2B:
+                ins.set(opcode == 0x23 ? Z80Op.INC_RP : Z80Op.DEC_RP, 2, 10).args(idx);
+                break;
+            case 0x24:
+            case 0x25:
+            case 0x2C:
+            case 0x2D:
+                ins.set(z == 4 ? Z80Op.INC_R : Z80Op.DEC_R, 2, 8).args(y == 4 ? hi : hi + 1);
+                break;
+            case 0x26:
+            case 0x2E:
+                ins.set(Z80Op.LD_R_N, 3, 11).args(y == 4 ? hi : hi + 1, read8(pc + 2));
+                break;
+            case 0x34:
+            case 0x35:
+                ins.set(opcode == 0x34 ? Z80Op.INC_IDX : Z80Op.DEC_IDX, 3, 23).args(idx, d);
+                break;
+            case 0x36:
+                ins.set(Z80Op.LD_IDX_N, 4, 19).args(idx, d, read8(pc + 3));
+                break;
+            case 0xCB:
+                return decodeDDFDCB(pc, idx, d, ins);
+            case 0xE1:
+                ins.set(Z80Op.POP, 2, 14).args(idx);
+                break;
+            case 0xE3:
+                ins.set(Z80Op.EX_SP_RP, 2, 23).args(idx);
+                break;
+            case 0xE5:
+                ins.set(Z80Op.PUSH, 2, 15).args(idx);
+                break;
+            case 0xE9:
+                ins.set(Z80Op.JP_RP, 2, 8).args(idx);
+                break;
+            case 0xF9:
+                ins.set(Z80Op.LD_SP_RP, 2, 10).args(idx);
+                break;
+            case 0xDD:
+            case 0xED:
+            case 0xFD:
+                ins.set(Z80Op.UNSUPPORTED, 2, 8);
+                break;
+            default:
+                handled = false;
+                break;
+        }
+        if (!handled && x == 1 && opcode != 0x76) {
+            if (z == 6) {
+                ins.set(Z80Op.LD_R_IDX, 3, 19).args(y, idx, d);
+                handled = true;
+            } else if (y == 6) {
+                ins.set(Z80Op.LD_IDX_R, 3, 19).args(idx, d, z);
+                handled = true;
+            } else if (y == 4 || y == 5 || z == 4 || z == 5) {
+                ins.set(Z80Op.LD_R_R, 2, 8).args(indexReg(y, hi), indexReg(z, hi));
+                handled = true;
+            }
+        } else if (!handled && x == 2) {
+            if (z == 6) {
+                ins.set(Z80Op.ALU_IDX, 3, 19).args(y, idx, d);
+                handled = true;
+            } else if (z == 4 || z == 5) {
+                ins.set(Z80Op.ALU_R, 2, 8).args(y, indexReg(z, hi));
+                handled = true;
+            }
+        }
+        if (!handled) {
+            //the prefix is ignored, operands are decoded relative to pc + 1
+            decodeMain(pc + 1, opcode, ins);
+            ins.length++;
+            ins.cycles += 4;
+        }
+        ins.fetches = 2;
+        return ins;
+    }
+
+    private Z80Instruction decodeDDFDCB(int pc, int idx, int d, Z80Instruction ins) {
+        int opcode = read8(pc + 3);
+        int x = opcode >> 6, y = (opcode >> 3) & 7, z = opcode & 7;
+        switch (x) {
+            case 0:
+                ins.set(Z80Op.ROT_IDX, 4, 23).args(y | z << 3, idx, d);
+                break;
+            case 1:
+                ins.set(Z80Op.BIT_IDX, 4, 20).args(y, idx, d);
+                break;
+            case 2:
+                ins.set(Z80Op.RES_IDX, 4, 23).args(y | z << 3, idx, d);
+                break;
+            default:
+                ins.set(Z80Op.SET_IDX, 4, 23).args(y | z << 3, idx, d);
+                break;
+        }
+        ins.fetches = 2;
+        return ins;
+    }
+
+    private static int indexReg(int r, int hi) {
+        return r == 4 ? hi : (r == 5 ? hi + 1 : r);
+    }
+
+    private int relative(int pc) {
+        return (pc + 2 + (byte) read8(pc + 1)) & 0xFFFF;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Z80Instruction
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+/**
+ * Z80Instruction
+ * <p>
+ * A decoded instruction: operation, operands and timing.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class Z80Instruction {
+
+    public Z80Op op = Z80Op.UNSUPPORTED;
+    public int a, b, c;
+    public int length;
+    //not taken, takenCycles are added when a branch is taken
+    public int cycles;
+    public int takenCycles;
+    //opcode fetches, ie. R register increments
+    public int fetches;
+
+    public Z80Instruction set(Z80Op op, int length, int cycles) {
+        this.op = op;
+        this.length = length;
+        this.cycles = cycles;
+        this.takenCycles = 0;
+        this.fetches = 1;
+        this.a = this.b = this.c = 0;
+        return this;
+    }
+
+    public Z80Instruction args(int a) {
+        this.a = a;
+        return this;
+    }
+
+    public Z80Instruction args(int a, int b) {
+        this.a = a;
+        this.b = b;
+        return this;
+    }
+
+    public Z80Instruction args(int a, int b, int c) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        return this;
+    }
+
+    public Z80Instruction taken(int takenCycles) {
+        this.takenCycles = takenCycles;
+        return this;
+    }
+
+    public int getArg(int i) {
+        return i == 0 ? a : (i == 1 ? b : c);
+    }
+
+    public Z80Instruction copy() {
+        Z80Instruction i = new Z80Instruction();
+        i.op = op;
+        i.a = a;
+        i.b = b;
+        i.c = c;
+        i.length = length;
+        i.cycles = cycles;
+        i.takenCycles = takenCycles;
+        i.fetches = fetches;
+        return i;
+    }
+
+    @Override
+    public String toString() {
+        return op + "(" + Integer.toHexString(a) + "," + Integer.toHexString(b) + "," +
+                Integer.toHexString(c) + "), len: " + length + ", cycles: " + cycles;
+    }
+}
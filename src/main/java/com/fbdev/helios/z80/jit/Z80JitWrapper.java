@@ -0,0 +1,97 @@
+/*
+ * Z80JitWrapper
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+import com.fbdev.helios.model.BaseBusProvider;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Z80JitWrapper
+ * <p>
+ * Runs the ROM code as compiled blocks and everything else (RAM code, HALT, IO, interrupts) on the z80core.
+ * A block only runs when no interrupt can be taken before it ends and all of it fits in the budget,
+ * so bursts produce the same state and cycles as the interpreter.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class Z80JitWrapper extends Z80RomCodeWrapper {
+
+    private final static Logger LOG = LogManager.getLogger(Z80JitWrapper.class.getSimpleName());
+
+    private Z80Recompiler recompiler;
+
+    protected Z80JitWrapper() {
+    }
+
+    public static Z80JitWrapper createInstance(BaseBusProvider busProvider, int romEnd) {
+        LOG.info("z80 recompiler, rom end: {}", Integer.toHexString(romEnd));
+        return createInstance(busProvider, romEnd, new Z80Recompiler(busProvider, romEnd));
+    }
+
+    /**
+     * recompiler: shared with the other cpus running the same ROM
+     */
+    public static Z80JitWrapper createInstance(BaseBusProvider busProvider, int romEnd, Z80Recompiler recompiler) {
+        Z80JitWrapper w = setupRomCode(new Z80JitWrapper(), busProvider, romEnd);
+        w.recompiler = recompiler;
+        return w;
+    }
+
+    @Override
+    public int executeBurst(int budget) {
+        resetIdle();
+        int cycles = 0;
+        while (cycles <= budget) {
+            int pc = z80Core.getRegPC();
+            Z80Block block = canRunRomCode() ? recompiler.getBlock(pc) : null;
+            int delay;
+            if (block != null && cycles + block.maxCycles <= budget) {
+                delay = runBlock(block);
+                pc = block.lastPc;
+            } else {
+                delay = Math.max(1, executeInstruction());
+            }
+            cycles += delay;
+            if (IDLE_SKIP) {
+                cycles += skipIdle(pc, delay, budget - cycles);
+            }
+        }
+        return cycles;
+    }
+
+    private int runBlock(Z80Block block) {
+        instCyclesPenalty = 0;
+        try {
+            int cycles = block.run(ops) + instCyclesPenalty;
+            setFlagQ(block.lastQ);
+            return cycles;
+        } catch (Exception | Error e) {
+            handleException(e);
+        }
+        return Math.max(1, instCyclesPenalty);
+    }
+
+    public Z80Recompiler getRecompiler() {
+        return recompiler;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Z80Op
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+/**
+ * Z80Op
+ * <p>
+ * Decoded operation, maps to the Z80BlockOps method with the same name.
+ * Branches return the extra cycles of a taken branch and end a block.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public enum Z80Op {
+    UNSUPPORTED(null, 0, Kind.UNSUPPORTED, false),
+    NOP("nop", 0, Kind.NORMAL, false),
+    LD_R_R("ldRR", 2, Kind.NORMAL, false),
+    LD_R_N("ldRN", 2, Kind.NORMAL, false),
+    LD_R_HL("ldRHl", 1, Kind.NORMAL, false),
+    LD_HL_R("ldHlR", 1, Kind.NORMAL, false),
+    LD_HL_N("ldHlN", 1, Kind.NORMAL, false),
+    LD_R_IDX("ldRIdx", 3, Kind.NORMAL, false),
+    LD_IDX_R("ldIdxR", 3, Kind.NORMAL, false),
+    LD_IDX_N("ldIdxN", 3, Kind.NORMAL, false),
+    LD_A_RP("ldARp", 1, Kind.NORMAL, false),
+    LD_RP_A("ldRpA", 1, Kind.NORMAL, false),
+    LD_A_NN("ldANn", 1, Kind.NORMAL, false),
+    LD_NN_A("ldNnA", 1, Kind.NORMAL, false),
+    LD_RP_NN("ldRpNn", 2, Kind.NORMAL, false),
+    LD_RP_MNN("ldRpMnn", 2, Kind.NORMAL, false),
+    LD_MNN_RP("ldMnnRp", 2, Kind.NORMAL, false),
+    LD_SP_RP("ldSpRp", 1, Kind.NORMAL, false),
+    LD_I_A("ldIA", 0, Kind.NORMAL, false),
+    INC_R("incR", 1, Kind.NORMAL, true),
+    DEC_R("decR", 1, Kind.NORMAL, true),
+    INC_HL("incHl", 0, Kind.NORMAL, true),
+    DEC_HL("decHl", 0, Kind.NORMAL, true),
+    INC_IDX("incIdx", 2, Kind.NORMAL, true),
+    DEC_IDX("decIdx", 2, Kind.NORMAL, true),
+    INC_RP("incRp", 1, Kind.NORMAL, false),
+    DEC_RP("decRp", 1, Kind.NORMAL, false),
+    ADD_RP("addRp", 2, Kind.NORMAL, true),
+    ADC_HL("adcHl", 1, Kind.NORMAL, true),
+    SBC_HL("sbcHl", 1, Kind.NORMAL, true),
+    ALU_R("aluR", 2, Kind.NORMAL, true),
+    ALU_N("aluN", 2, Kind.NORMAL, true),
+    ALU_HL("aluHl", 1, Kind.NORMAL, true),
+    ALU_IDX("aluIdx", 3, Kind.NORMAL, true),
+    ACC("acc", 1, Kind.NORMAL, true),
+    SCF("scf", 1, Kind.NORMAL, true),
+    CCF("ccf", 1, Kind.NORMAL, true),
+    EX_AF("exAf", 0, Kind.NORMAL, false),
+    EXX("exx", 0, Kind.NORMAL, false),
+    EX_DE_HL("exDeHl", 0, Kind.NORMAL, false),
+    EX_SP_RP("exSpRp", 1, Kind.NORMAL, false),
+    PUSH("push", 1, Kind.NORMAL, false),
+    POP("pop", 1, Kind.NORMAL, false),
+    DI("di", 0, Kind.NORMAL, false),
+    IM("im", 1, Kind.NORMAL, false),
+    ROT_R("rotR", 2, Kind.NORMAL, true),
+    ROT_HL("rotHl", 1, Kind.NORMAL, true),
+    ROT_IDX("rotIdx", 3, Kind.NORMAL, true),
+    BIT_R("bitR", 2, Kind.NORMAL, true),
+    BIT_HL("bitHl", 1, Kind.NORMAL, true),
+    BIT_IDX("bitIdx", 3, Kind.NORMAL, true),
+    RES_R("resR", 2, Kind.NORMAL, false),
+    RES_HL("resHl", 1, Kind.NORMAL, false),
+    RES_IDX("resIdx", 3, Kind.NORMAL, false),
+    SET_R("setR", 2, Kind.NORMAL, false),
+    SET_HL("setHl", 1, Kind.NORMAL, false),
+    SET_IDX("setIdx", 3, Kind.NORMAL, false),
+    RRD("rrd", 0, Kind.NORMAL, true),
+    RLD("rld", 0, Kind.NORMAL, true),
+    BLOCK("block", 1, Kind.NORMAL, true),
+    JP("jp", 1, Kind.BRANCH, false),
+    JP_CC("jpCc", 3, Kind.BRANCH, false),
+    JR("jr", 1, Kind.BRANCH, false),
+    JR_CC("jrCc", 3, Kind.BRANCH, false),
+    DJNZ("djnz", 2, Kind.BRANCH, false),
+    CALL("call", 2, Kind.BRANCH, false),
+    CALL_CC("callCc", 3, Kind.BRANCH, false),
+    RET("ret", 0, Kind.BRANCH, false),
+    RET_CC("retCc", 2, Kind.BRANCH, false),
+    RST("rst", 2, Kind.BRANCH, false),
+    JP_RP("jpRp", 1, Kind.BRANCH, false),
+    BLOCK_REPEAT("blockRepeat", 2, Kind.BRANCH, true);
+
+    public enum Kind {NORMAL, BRANCH, UNSUPPORTED}
+
+    public final String method;
+    public final int args;
+    public final Kind kind;
+    //the z80core sets flagQ, only SCF and CCF look at it
+    public final boolean flagQ;
+
+    Z80Op(String method, int args, Kind kind, boolean flagQ) {
+        this.method = method;
+        this.args = args;
+        this.kind = kind;
+        this.flagQ = flagQ;
+    }
+
+    public boolean isBranch() {
+        return kind == Kind.BRANCH;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Z80Recompiler
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+import com.fbdev.helios.model.BaseBusProvider;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Z80Recompiler
+ * <p>
+ * Translates ROM code into Z80Block classes, compiled the first time the block is reached
+ * and cached by address; ROM doesn't change so the cache is never invalidated.
+ * Addresses where a block can't start (SCF/CCF, unsupported instructions) are remembered
+ * and left to the interpreter, as is everything when the classes can't be defined.
+ * Blocks keep no state: one recompiler is shared by all the systems running the same ROM,
+ * compilation is serialized and the blocks are published through an atomic array.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class Z80Recompiler {
+
+    private final static Logger LOG = LogManager.getLogger(Z80Recompiler.class.getSimpleName());
+
+    private static final int MAX_BLOCK_INSTRUCTIONS = 64;
+    private static final String CLASS_PREFIX = Z80Block.class.getName() + "_";
+
+    private final Z80Decoder decoder;
+    private final int romEnd;
+    //NO_BLOCK where a block can't start, null when not compiled yet
+    private final AtomicReferenceArray<Z80Block> blocks;
+    private final BlockClassLoader loader = new BlockClassLoader();
+    private final List<Z80Instruction> current = new ArrayList<>(MAX_BLOCK_INSTRUCTIONS);
+    private final Z80Instruction ins = new Z80Instruction();
+    private boolean disabled;
+    private volatile int compiled;
+
+    private static final Z80Block NO_BLOCK = new Z80Block() {
+        @Override
+        public int run(Z80BlockOps ops) {
+            throw new IllegalStateException();
+        }
+    };
+
+    public Z80Recompiler(BaseBusProvider bus, int romEnd) {
+        this.decoder = new Z80Decoder(bus);
+        this.romEnd = romEnd;
+        this.blocks = new AtomicReferenceArray<>(romEnd);
+    }
+
+    /**
+     * @return the block starting at pc, null if the interpreter should run the next instruction
+     */
+    public Z80Block getBlock(int pc) {
+        if (pc >= romEnd) {
+            return null;
+        }
+        Z80Block b = blocks.get(pc);
+        if (b == null) {
+            b = compileBlock(pc);
+        }
+        return b == NO_BLOCK ? null : b;
+    }
+
+    private synchronized Z80Block compileBlock(int pc) {
+        Z80Block b = blocks.get(pc);
+        if (b == null) {
+            b = compile(pc);
+            b = b == null ? NO_BLOCK : b;
+            blocks.set(pc, b);
+        }
+        return b;
+    }
+
+    private Z80Block compile(int startPc) {
+        if (disabled) {
+            return null;
+        }
+        current.clear();
+        int pc = startPc, cycles = 0, maxCycles = 0, fetches = 0;
+        boolean lastQ = false;
+        while (current.size() < MAX_BLOCK_INSTRUCTIONS) {
+            decoder.decode(pc, ins);
+            if (ins.op == Z80Op.UNSUPPORTED || pc + ins.length > romEnd) {
+                break;
+            }
+            //SCF and CCF depend on the previous instruction
+            if (ins.op == Z80Op.SCF || ins.op == Z80Op.CCF) {
+                if (current.isEmpty()) {
+                    break;
+                }
+                ins.a = lastQ ? 1 : 0;
+            }
+            current.add(ins.copy());
+            pc += ins.length;
+            cycles += ins.cycles;
+            maxCycles += ins.cycles + ins.takenCycles;
+            fetches += ins.fetches;
+            lastQ = ins.op.flagQ;
+            if (ins.op.isBranch()) {
+                break;
+            }
+        }
+        if (current.isEmpty()) {
+            return null;
+        }
+        try {
+            String name = CLASS_PREFIX + Integer.toHexString(startPc);
+            byte[] classFile = BlockClassWriter.writeBlock(name, current, pc, cycles, fetches);
+            Z80Block block = (Z80Block) loader.define(name, classFile).getConstructor().newInstance();
+            block.pc = startPc;
+            block.lastPc = pc - current.get(current.size() - 1).length;
+            block.length = current.size();
+            block.maxCycles = maxCycles;
+            block.lastQ = lastQ;
+            compiled++;
+            return block;
+        } catch (Exception | LinkageError e) {
+            LOG.error("Unable to compile the block at {}, falling back to the interpreter",
+                    Integer.toHexString(startPc), e);
+            disabled = true;
+            return null;
+        }
+    }
+
+    public int getCompiledCount() {
+        return compiled;
+    }
+
+    /**
+     * Hidden classes would be a better fit but they need java 15, the loader and its classes
+     * live as long as the recompiler.
+     */
+    private static class BlockClassLoader extends ClassLoader {
+
+        BlockClassLoader() {
+            super(Z80Block.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] b) {
+            return defineClass(name, b, 0, b.length);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Z80RomCodeWrapper
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+import com.fbdev.helios.model.BaseBusProvider;
+import com.fbdev.helios.z80.Z80CoreWrapper;
+import com.fbdev.helios.z80.Z80MemIoOps;
+import z80core.Z80State;
+
+/**
+ * Z80RomCodeWrapper
+ * <p>
+ * Base of the jit backend: runs the ROM code with Z80BlockOps and leaves everything else to the z80core.
+ * Keeps track of the core state that isn't visible through its accessors: a pending DD/ED/FD prefix
+ * and the flagQ of the last instruction, only SCF and CCF look at it.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public abstract class Z80RomCodeWrapper extends Z80CoreWrapper {
+
+    protected Z80BlockOps ops;
+    protected int romEnd;
+    private boolean prefixPending;
+    //flagQ of the last instruction run outside the core, the core doesn't know about it yet
+    private boolean flagQ, flagQPending;
+
+    protected static <T extends Z80RomCodeWrapper> T setupRomCode(T w, BaseBusProvider busProvider, int romEnd) {
+        w.z80BusProvider = busProvider;
+        w.memIoOps = Z80MemIoOps.createInstance(busProvider);
+        setupInternal(w, null);
+        w.ops = new Z80BlockOps(w.z80Core, w.memIoOps);
+        w.romEnd = romEnd;
+        return w;
+    }
+
+    @Override
+    public int executeInstruction() {
+        syncFlagQ(false);
+        prefixPending = isPrefixPendingAfter(z80Core.getRegPC());
+        return super.executeInstruction();
+    }
+
+    /**
+     * ROM code can run outside the core when the core has no pending prefix or EI and
+     * no interrupt can be taken, as the bus never raises one while the cpu runs.
+     */
+    protected boolean canRunRomCode() {
+        return !prefixPending && !z80Core.isHalted() && !z80Core.isPendingEI() && !isInterruptPending();
+    }
+
+    //flagQ of the instruction that just ran outside the core
+    protected void setFlagQ(boolean value) {
+        flagQ = value;
+        flagQPending = true;
+    }
+
+    //the core only needs flagQ when the next instruction is SCF or CCF
+    private void syncFlagQ(boolean always) {
+        if (!flagQPending) {
+            return;
+        }
+        flagQPending = false;
+        if (!always && !isScfCcf(z80Core.getRegPC())) {
+            return;
+        }
+        Z80State state = z80Core.getZ80State();
+        if (state.isFlagQ() != flagQ) {
+            state.setFlagQ(flagQ);
+            z80Core.setZ80State(state);
+        }
+    }
+
+    protected boolean isScfCcf(int pc) {
+        int opcode = memIoOps.read8(pc);
+        while (opcode == 0xDD || opcode == 0xFD) {
+            pc = (pc + 1) & 0xFFFF;
+            opcode = memIoOps.read8(pc);
+        }
+        return opcode == 0x37 || opcode == 0x3F;
+    }
+
+    //a DD/ED/FD prefix followed by another prefix stays pending in the core and applies to the next opcode
+    private boolean isPrefixPendingAfter(int pc) {
+        if (!prefixPending) {
+            if (!isPrefix(memIoOps.read8(pc))) {
+                return false;
+            }
+            pc = (pc + 1) & 0xFFFF;
+        }
+        return isPrefix(memIoOps.read8(pc));
+    }
+
+    private static boolean isPrefix(int opcode) {
+        return opcode == 0xDD || opcode == 0xED || opcode == 0xFD;
+    }
+
+    @Override
+    public void loadZ80State(Z80State z80State) {
+        flagQPending = false;
+        prefixPending = false;
+        super.loadZ80State(z80State);
+    }
+
+    @Override
+    public Z80State getZ80State() {
+        syncFlagQ(true);
+        return super.getZ80State();
+    }
+
+    @Override
+    public Z80State getZ80State(Z80State state) {
+        super.getZ80State(state);
+        if (flagQPending) {
+            state.setFlagQ(flagQ);
+        }
+        return state;
+    }
+}
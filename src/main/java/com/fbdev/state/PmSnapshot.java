@@ -0,0 +1,115 @@
+/*
+ * PmSnapshot
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.state;
+
+import com.fbdev.bus.SystemBus;
+import com.fbdev.helios.z80.Z80Helper;
+import com.fbdev.helios.z80.Z80Provider;
+import z80core.Z80State;
+
+import java.nio.ByteBuffer;
+
+/**
+ * PmSnapshot
+ * <p>
+ * In-memory state of the z80 and the bus, written to and read from a buffer owned by the caller:
+ * no allocation, no header and no romSet hash, meant for rewind and run-ahead.
+ * Unlike PmStateHandler every z80 flip-flop is kept (R, memptr, INT line, pending EI),
+ * snapshots are only valid for the running romSet and version, never store them on disk.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public final class PmSnapshot {
+
+    //8 + 8 registers, 5 register pairs, I, R, flip-flops, interrupt mode
+    public static final int Z80_LEN = 16 + 5 * 2 + 2 + 2;
+    public static final int SIZE = Z80_LEN + SystemBus.SNAPSHOT_LEN;
+
+    private PmSnapshot() {
+    }
+
+    /**
+     * Writes SIZE bytes to buf, from its position. state is a scratch object, reused by the caller
+     */
+    public static void save(Z80Provider z80, SystemBus bus, Z80State state, ByteBuffer buf) {
+        saveZ80(z80.getZ80State(state), buf);
+        bus.saveSnapshot(buf);
+    }
+
+    /**
+     * Reads SIZE bytes written by save, from the position of buf
+     */
+    public static void load(Z80Provider z80, SystemBus bus, Z80State state, ByteBuffer buf) {
+        z80.loadZ80State(loadZ80(buf, state));
+        bus.loadSnapshot(buf);
+    }
+
+    private static void saveZ80(Z80State s, ByteBuffer buf) {
+        buf.put((byte) s.getRegA()).put((byte) s.getRegF()).put((byte) s.getRegB()).put((byte) s.getRegC());
+        buf.put((byte) s.getRegD()).put((byte) s.getRegE()).put((byte) s.getRegH()).put((byte) s.getRegL());
+        buf.put((byte) s.getRegAx()).put((byte) s.getRegFx()).put((byte) s.getRegBx()).put((byte) s.getRegCx());
+        buf.put((byte) s.getRegDx()).put((byte) s.getRegEx()).put((byte) s.getRegHx()).put((byte) s.getRegLx());
+        buf.putShort((short) s.getRegIX()).putShort((short) s.getRegIY()).putShort((short) s.getRegSP());
+        buf.putShort((short) s.getRegPC()).putShort((short) s.getMemPtr());
+        buf.put((byte) s.getRegI()).put((byte) s.getRegR());
+        int flags = (s.isHalted() ? 1 : 0) | (s.isIFF1() ? 2 : 0) | (s.isIFF2() ? 4 : 0) |
+                (s.isINTLine() ? 8 : 0) | (s.isPendingEI() ? 0x10 : 0) | (s.isNMI() ? 0x20 : 0) |
+                (s.isFlagQ() ? 0x40 : 0);
+        buf.put((byte) flags).put((byte) s.getIM().ordinal());
+    }
+
+    private static Z80State loadZ80(ByteBuffer buf, Z80State s) {
+        s.setRegA(buf.get() & 0xFF);
+        s.setRegF(buf.get() & 0xFF);
+        s.setRegB(buf.get() & 0xFF);
+        s.setRegC(buf.get() & 0xFF);
+        s.setRegD(buf.get() & 0xFF);
+        s.setRegE(buf.get() & 0xFF);
+        s.setRegH(buf.get() & 0xFF);
+        s.setRegL(buf.get() & 0xFF);
+        s.setRegAx(buf.get() & 0xFF);
+        s.setRegFx(buf.get() & 0xFF);
+        s.setRegBx(buf.get() & 0xFF);
+        s.setRegCx(buf.get() & 0xFF);
+        s.setRegDx(buf.get() & 0xFF);
+        s.setRegEx(buf.get() & 0xFF);
+        s.setRegHx(buf.get() & 0xFF);
+        s.setRegLx(buf.get() & 0xFF);
+        s.setRegIX(buf.getShort() & 0xFFFF);
+        s.setRegIY(buf.getShort() & 0xFFFF);
+        s.setRegSP(buf.getShort() & 0xFFFF);
+        s.setRegPC(buf.getShort() & 0xFFFF);
+        s.setMemPtr(buf.getShort() & 0xFFFF);
+        s.setRegI(buf.get() & 0xFF);
+        s.setRegR(buf.get() & 0xFF);
+        int flags = buf.get();
+        s.setHalted((flags & 1) > 0);
+        s.setIFF1((flags & 2) > 0);
+        s.setIFF2((flags & 4) > 0);
+        s.setINTLine((flags & 8) > 0);
+        s.setPendingEI((flags & 0x10) > 0);
+        s.setNMI((flags & 0x20) > 0);
+        s.setFlagQ((flags & 0x40) > 0);
+        s.setIM(Z80Helper.parseIntMode(buf.get()));
+        return s;
+    }
+}
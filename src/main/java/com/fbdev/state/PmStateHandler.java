@@ -34,7 +34,6 @@ import javax.swing.filechooser.FileFilter;
 import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.file.Paths;
-import java.util.Arrays;
 
 public class PmStateHandler implements HeliosPmStateHandler {
 
@@ -100,7 +99,9 @@ public class PmStateHandler implements HeliosPmStateHandler {
 
     //2 bytes for a 16 bit int
     private static void setData(ByteBuffer buf, int... data) {
-        Arrays.stream(data).forEach(val -> buf.put((byte) (val & 0xFF)));
+        for (int val : data) {
+            buf.put((byte) (val & 0xFF));
+        }
     }
 
     private PmStateHandler detectStateFileType() {
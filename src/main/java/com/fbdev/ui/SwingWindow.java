@@ -71,7 +71,12 @@ public class SwingWindow extends SwingWindowBase {
     @Override
     public void renderScreen(Optional<String> label, VideoMode videoMode) {
         this.newDimension = videoMode.getDimension();
-        refresh();
+        presentFrame();
+        label.ifPresent(this::showLabel);
+    }
+
+    @Override
+    public void repeatFrame(Optional<String> label, VideoMode videoMode) {
         label.ifPresent(this::showLabel);
     }
 }
\ No newline at end of file
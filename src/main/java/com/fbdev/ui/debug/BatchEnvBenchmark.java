@@ -0,0 +1,78 @@
+/*
+ * BatchEnvBenchmark
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.ui.debug;
+
+import com.fbdev.BatchEnv;
+import com.fbdev.EmulationEngine;
+import com.fbdev.util.RomHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * BatchEnvBenchmark
+ * <p>
+ * Steps per second of a BatchEnv with random actions, for each observation type.
+ * Usage: BatchEnvBenchmark [romFolder] [instances] [steps]
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class BatchEnvBenchmark {
+
+    private static final Logger LOG = LogManager.getLogger(BatchEnvBenchmark.class.getSimpleName());
+
+    private static final int[] ACTIONS = {0, BatchEnv.ACTION_UP, BatchEnv.ACTION_DOWN, BatchEnv.ACTION_LEFT,
+            BatchEnv.ACTION_RIGHT};
+
+    public static void main(String[] args) {
+        RomHelper romHelper = RomHelper.createInstance(Paths.get(args.length > 0 ? args[0] : RomHelper.ROMS_FOLDER));
+        int instances = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 600;
+        Random r = new Random(1);
+        int[] actions = new int[instances];
+        for (BatchEnv.ObsType obsType : BatchEnv.ObsType.values()) {
+            try (BatchEnv env = new BatchEnv(romHelper, instances, EmulationEngine.DEFAULT_WORKERS, obsType,
+                    Optional.empty())) {
+                run(env, actions, r, steps / 4); //warm up
+                long start = System.nanoTime();
+                run(env, actions, r, steps);
+                double fps = (double) instances * steps * 1_000_000_000L / (System.nanoTime() - start);
+                LOG.info(String.format("%-6s | %5d bytes/obs | %9.1f frames/s | %8.1f frames/s/worker", obsType,
+                        env.getObsBytes(), fps, fps / env.getEngine().getNumWorkers()));
+            }
+        }
+    }
+
+    private static void run(BatchEnv env, int[] actions, Random r, int steps) {
+        for (int i = 0; i < steps; i++) {
+            if (i % 8 == 0) {
+                for (int j = 0; j < actions.length; j++) {
+                    actions[j] = ACTIONS[r.nextInt(ACTIONS.length)];
+                }
+            }
+            env.step(actions);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * EngineBenchmark
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.ui.debug;
+
+import com.fbdev.EmulationEngine;
+import com.fbdev.helios.model.DisplayWindow;
+import com.fbdev.util.RomHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Paths;
+
+/**
+ * EngineBenchmark
+ * <p>
+ * Frames per second of an EmulationEngine, for 1 worker up to the number of cores,
+ * to check how throughput scales.
+ * Usage: EngineBenchmark [romFolder] [instances] [frames]
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class EngineBenchmark {
+
+    private static final Logger LOG = LogManager.getLogger(EngineBenchmark.class.getSimpleName());
+
+    public static void main(String[] args) {
+        RomHelper romHelper = RomHelper.createInstance(Paths.get(args.length > 0 ? args[0] : RomHelper.ROMS_FOLDER));
+        int cores = Runtime.getRuntime().availableProcessors();
+        int instances = args.length > 1 ? Integer.parseInt(args[1]) : cores;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 600;
+        double base = 0;
+        for (int workers = 1; workers <= cores; workers *= 2) {
+            EmulationEngine engine = new EmulationEngine(romHelper, instances, workers,
+                    i -> DisplayWindow.HEADLESS_INSTANCE);
+            engine.runFrames(frames / 4); //warm up
+            long start = System.nanoTime();
+            engine.runFrames(frames);
+            double fps = (double) instances * frames * 1_000_000_000L / (System.nanoTime() - start);
+            base = workers == 1 ? fps : base;
+            LOG.info(String.format("workers %2d | %9.1f frames/s | x%.2f", workers, fps, fps / base));
+            engine.shutdown();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * ForkBenchmark
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.ui.debug;
+
+import com.fbdev.Z80BaseSystem;
+import com.fbdev.helios.model.DisplayWindow;
+import com.fbdev.util.RomHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Paths;
+
+/**
+ * ForkBenchmark
+ * <p>
+ * Time per Z80BaseSystem.fork(), alone and followed by the first frame of the fork,
+ * after the system has run for some frames. Run it once per z80.core value, the forks share
+ * the decoded ROM code with the system: no decoding or compiling happens on fork.
+ * Usage: ForkBenchmark [romFolder] [forks]
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class ForkBenchmark {
+
+    private static final Logger LOG = LogManager.getLogger(ForkBenchmark.class.getSimpleName());
+
+    public static void main(String[] args) {
+        RomHelper romHelper = RomHelper.createInstance(Paths.get(args.length > 0 ? args[0] : RomHelper.ROMS_FOLDER));
+        int forks = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        Z80BaseSystem system = Z80BaseSystem.createInstance(romHelper, DisplayWindow.HEADLESS_INSTANCE);
+        system.setThrottled(false);
+        for (int i = 0; i < 600; i++) {
+            system.runFrame();
+        }
+        String core = System.getProperty("z80.core", "core");
+        run(system, forks / 4, false); //warm up
+        LOG.info(String.format("z80.core %s, fork: %7.1f us", core, run(system, forks, false) / 1000d / forks));
+        run(system, forks / 4, true);
+        LOG.info(String.format("z80.core %s, fork + frame: %7.1f us", core,
+                run(system, forks, true) / 1000d / forks));
+    }
+
+    private static long run(Z80BaseSystem system, int forks, boolean runFrame) {
+        long start = System.nanoTime();
+        for (int i = 0; i < forks; i++) {
+            Z80BaseSystem fork = system.fork();
+            if (runFrame) {
+                fork.setThrottled(false);
+                fork.runFrame();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * RenderBenchmark
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.ui.debug;
+
+import com.fbdev.Video;
+import com.fbdev.bus.SystemBus;
+import com.fbdev.util.RomHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * RenderBenchmark
+ * <p>
+ * Time per frame of Video.renderScreenDataIndexed, serial and with parallel strips, when nothing
+ * changes, when only the sprites move and when every tile is redrawn.
+ * Usage: RenderBenchmark [romFolder] [frames]
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class RenderBenchmark {
+
+    private static final Logger LOG = LogManager.getLogger(RenderBenchmark.class.getSimpleName());
+
+    private static final int[] STRIPS = {1, 2, 4, 6, 9};
+    private static final String[] SCENARIOS = {"static", "sprites", "full redraw"};
+
+    public static void main(String[] args) {
+        RomHelper romHelper = RomHelper.createInstance(Paths.get(args.length > 0 ? args[0] : RomHelper.ROMS_FOLDER));
+        if (!romHelper.isRomSetFound()) {
+            LOG.error("Unable to find a supported romSet");
+            return;
+        }
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        SystemBus bus = new SystemBus();
+        bus.init(romHelper);
+        Video video = new Video(romHelper, bus, null);
+        bus.attach(video);
+        byte[] render = new byte[video.getVideoMode().getPixelW() * video.getVideoMode().getPixelH()];
+        fillVideoRam(bus, new Random(1));
+        LOG.info("cores: {}, frames: {}", Runtime.getRuntime().availableProcessors(), frames);
+        for (int scenario = 0; scenario < SCENARIOS.length; scenario++) {
+            StringBuilder sb = new StringBuilder(String.format("%-12s", SCENARIOS[scenario]));
+            for (int strips : STRIPS) {
+                video.setRenderStrips(strips);
+                run(bus, video, render, scenario, frames / 4); //warm up
+                long ns = run(bus, video, render, scenario, frames);
+                sb.append(String.format(" | strips %d: %6.1f us", strips, ns / 1000d / frames));
+            }
+            LOG.info(sb.toString());
+        }
+    }
+
+    private static long run(SystemBus bus, Video video, byte[] render, int scenario, int frames) {
+        Random r = new Random(scenario);
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            if (scenario > 0) {
+                moveSprites(bus, r);
+            }
+            if (scenario > 1) {
+                video.reload();
+            }
+            video.renderScreenDataIndexed(render);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void fillVideoRam(SystemBus bus, Random r) {
+        for (int i = 0; i < SystemBus.VIDEO_RAM_LENGTH; i++) {
+            bus.write8(0x4000 + i, r.nextInt(0x100));
+        }
+    }
+
+    private static void moveSprites(SystemBus bus, Random r) {
+        for (int i = 0; i < Video.NUM_SPRITES_SCREEN * 2; i += 2) {
+            bus.write8(SystemBus.SPRITE_RAM_START + i, r.nextInt(0x100));
+            bus.write8(SystemBus.SPRITE_RAM_START + i + 1, r.nextInt(Video.NUM_PALETTES_ROM));
+            bus.write8(SystemBus.IO_SPRITE_START + i, Video.SPRITE_W_PX + r.nextInt(0x100 - Video.SPRITE_W_PX));
+            bus.write8(SystemBus.IO_SPRITE_START + i + 1, Video.SPRITE_H_PX + r.nextInt(0x100 - Video.SPRITE_H_PX));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * ScalerBenchmark
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.ui.debug;
+
+import com.fbdev.helios.util.RenderingStrategy;
+import com.fbdev.helios.util.SoftwareScaler;
+import com.fbdev.helios.util.VideoMode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * ScalerBenchmark
+ * <p>
+ * Time per frame to scale one screen, for each scale factor: RenderingStrategy.renderNearest,
+ * SoftwareScaler on one thread and on all the cores, Java2D drawImage on an offscreen image.
+ * Pick helios.ui.scaler and helios.ui.scaler.threads from the results on the host.
+ * Usage: ScalerBenchmark [frames]
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class ScalerBenchmark {
+
+    private static final Logger LOG = LogManager.getLogger(ScalerBenchmark.class.getSimpleName());
+
+    private static final double[] FACTORS = {1, 2, 2.5, 3, 4};
+
+    interface Scale {
+        void run(int[] src, Dimension srcDim, BufferedImage dest);
+    }
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        Dimension srcDim = VideoMode.H28_V36.getDimension();
+        BufferedImage srcImage = new BufferedImage(srcDim.width, srcDim.height, BufferedImage.TYPE_INT_RGB);
+        int[] src = getPixels(srcImage);
+        Random r = new Random(1);
+        for (int i = 0; i < src.length; i++) {
+            src[i] = r.nextInt(0x1000000);
+        }
+        SoftwareScaler single = new SoftwareScaler();
+        SoftwareScaler multi = new SoftwareScaler();
+        multi.setBands(cores);
+        Scale[] scales = {
+                (s, d, dest) -> RenderingStrategy.renderNearest(s, getPixels(dest), d,
+                        new Dimension(dest.getWidth(), dest.getHeight())),
+                (s, d, dest) -> single.scale(s, 0, d.width, d.width, d.height, getPixels(dest),
+                        dest.getWidth(), dest.getHeight()),
+                (s, d, dest) -> multi.scale(s, 0, d.width, d.width, d.height, getPixels(dest),
+                        dest.getWidth(), dest.getHeight()),
+                (s, d, dest) -> {
+                    Graphics2D g = dest.createGraphics();
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                            RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                    g.drawImage(srcImage, 0, 0, dest.getWidth(), dest.getHeight(), null);
+                    g.dispose();
+                }
+        };
+        String[] names = {"renderNearest", "software", "software x" + cores, "java2d"};
+        LOG.info("cores: {}, frames: {}, source: {}x{}", cores, frames, srcDim.width, srcDim.height);
+        for (double factor : FACTORS) {
+            BufferedImage dest = new BufferedImage((int) (srcDim.width * factor), (int) (srcDim.height * factor),
+                    BufferedImage.TYPE_INT_RGB);
+            StringBuilder sb = new StringBuilder(String.format("scale %-4s", factor));
+            for (int i = 0; i < scales.length; i++) {
+                run(scales[i], src, srcDim, dest, frames / 4); //warm up
+                long ns = run(scales[i], src, srcDim, dest, frames);
+                sb.append(String.format(" | %s: %7.1f us", names[i], ns / 1000d / frames));
+            }
+            LOG.info(sb.toString());
+        }
+    }
+
+    private static long run(Scale scale, int[] src, Dimension srcDim, BufferedImage dest, int frames) {
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            scale.run(src, srcDim, dest);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static int[] getPixels(BufferedImage img) {
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * VideoAssets
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.util;
+
+import com.fbdev.Video.FlipMode;
+
+import java.awt.*;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static com.fbdev.Video.*;
+
+/**
+ * VideoAssets
+ * <p>
+ * The graphics data decoded from a romSet: colors, palettes, tiles and sprites.
+ * Decoded once per RomHelper and shared by all the Video instances using it, never modified.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public final class VideoAssets {
+
+    private static final Map<RomHelper, VideoAssets> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Color[] colors;
+    //RGB value of each crom color, the last entry is black
+    private final int[] cromRgb;
+    private final int[][] paletteToColorsIdx = new int[NUM_PALETTES_ROM][NUM_COLORS_PALETTE];
+    private final int[][] tileToPaletteIdx = new int[NUM_TILES_ROM][TILE_PX];
+    private final EnumMap<FlipMode, int[][]> spriteFlipMap;
+
+    private VideoAssets(RomHelper r) {
+        byte[] crom = r.getCrom();
+        colors = new Color[crom.length];
+        cromRgb = new int[crom.length + 1];
+        VideoUtil.generateColors(crom, colors);
+        for (int i = 0; i < colors.length; i++) {
+            cromRgb[i] = colors[i].getRGB();
+        }
+        VideoUtil.generatePaletteToCromIdx(r.getPalRom(), paletteToColorsIdx);
+        VideoUtil.generateTileToPaletteIdx(r.getTileRom(), tileToPaletteIdx);
+        spriteFlipMap = VideoUtil.generateSpriteToPaletteIdxMap(r.getSpriteRom());
+    }
+
+    public static VideoAssets of(RomHelper r) {
+        return cache.computeIfAbsent(r, VideoAssets::new);
+    }
+
+    public Color[] getColors() {
+        return colors;
+    }
+
+    public int[] getCromRgb() {
+        return cromRgb;
+    }
+
+    public int[][] getPaletteToColorsIdx() {
+        return paletteToColorsIdx;
+    }
+
+    public int[][] getTileToPaletteIdx() {
+        return tileToPaletteIdx;
+    }
+
+    public int[][] getSpriteToPaletteIdx(FlipMode flipMode) {
+        return spriteFlipMap.get(flipMode);
+    }
+}
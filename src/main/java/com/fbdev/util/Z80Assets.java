@@ -0,0 +1,68 @@
+/*
+ * Z80Assets
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.util;
+
+import com.fbdev.bus.SystemBus;
+import com.fbdev.helios.z80.jit.Z80Recompiler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Z80Assets
+ * <p>
+ * The ROM code compiled for the jit cpus, built on first use once per RomHelper and shared
+ * by all the cpus running it; only the registers and the block ops belong to one cpu.
+ * Decoding reads the ROM through a bus of its own, which holds no reference to the RomHelper.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public final class Z80Assets {
+
+    private static final Logger LOG = LogManager.getLogger(Z80Assets.class.getSimpleName());
+
+    private static final Map<RomHelper, Z80Assets> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    //only the ROM is read, no devices attached
+    private final SystemBus romBus;
+    private Z80Recompiler recompiler;
+
+    private Z80Assets(RomHelper romHelper) {
+        romBus = new SystemBus();
+        romBus.init(romHelper);
+    }
+
+    public static Z80Assets of(RomHelper r) {
+        return cache.computeIfAbsent(r, Z80Assets::new);
+    }
+
+    public synchronized Z80Recompiler getRecompiler() {
+        if (recompiler == null) {
+            recompiler = new Z80Recompiler(romBus, SystemBus.ROM_LENGTH);
+            LOG.info("z80 recompiler, rom end: {}", Integer.toHexString(SystemBus.ROM_LENGTH));
+        }
+        return recompiler;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Z80CoreLockstepTest
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80;
+
+import com.fbdev.helios.model.BaseBusProvider;
+
+/**
+ * Z80CoreLockstepTest
+ * <p>
+ * Z80CoreWrapper bursts, with idle skip, against the same core run one instruction at a time
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class Z80CoreLockstepTest extends Z80LockstepTest {
+
+    @Override
+    protected Z80Provider createZ80(BaseBusProvider bus) {
+        return Z80CoreWrapper.createInstance(bus);
+    }
+}
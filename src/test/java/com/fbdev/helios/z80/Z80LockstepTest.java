@@ -0,0 +1,251 @@
+/*
+ * Z80LockstepTest
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80;
+
+import com.fbdev.helios.model.BaseBusProvider;
+import com.fbdev.helios.model.Device;
+import com.fbdev.helios.model.MemoryMap;
+import org.junit.Assert;
+import org.junit.Test;
+import z80core.Z80State;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Z80LockstepTest
+ * <p>
+ * Runs a backend and a reference Z80CoreWrapper side by side on random ROMs, with interrupts raised and
+ * dropped between bursts: every burst must return the same cycles and leave the same
+ * registers and memory. The reference runs one instruction at a time, without idle skip.
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public abstract class Z80LockstepTest {
+
+    protected static final int ROM_END = 0x4000;
+    private static final int SEEDS = 250, BURSTS = 24;
+    private static final int LONG_RUN_SEEDS = 4, LONG_RUN_BURSTS = 500;
+    private static final int MAX_BUDGET = 51200;
+    //idle tests: bursts shorter than, equal to and longer than one HALT or wait loop iteration,
+    //then 64 consecutive budgets to end on every cycle of an iteration
+    private static final int[] IDLE_BUDGETS = IntStream.concat(IntStream.of(0, 1, 3, 4, 5, 17, 18, 19, 100, 12345,
+            MAX_BUDGET), IntStream.range(1000, 1064)).toArray();
+    private static final int RAM_FLAG = ROM_END;
+
+    protected abstract Z80Provider createZ80(BaseBusProvider bus);
+
+    @Test
+    public void testLockstep() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            runSeed(seed, BURSTS);
+        }
+    }
+
+    @Test
+    public void testLongRun() {
+        for (int seed = SEEDS; seed < SEEDS + LONG_RUN_SEEDS; seed++) {
+            runSeed(seed, LONG_RUN_BURSTS);
+        }
+    }
+
+    //DI; LD SP,F000h; wait: LD A,(RAM_FLAG); OR A; JR Z,wait; HALT
+    @Test
+    public void testWaitLoop() {
+        Lockstep l = new Lockstep(program(0xF3, 0x31, 0x00, 0xF0, 0x3A, RAM_FLAG & 0xFF, RAM_FLAG >> 8, 0xB7,
+                0x28, 0xFA, 0x76), 0);
+        for (int budget : IDLE_BUDGETS) {
+            l.burst("wait loop, budget " + budget, budget);
+            Assert.assertFalse(l.ref.isHalted());
+        }
+        l.ref.writeMemory(RAM_FLAG, 1);
+        l.z80.writeMemory(RAM_FLAG, 1);
+        l.idleBursts("wait loop, flag set");
+        Assert.assertTrue(l.ref.isHalted());
+    }
+
+    //DI; LD SP,F000h; HALT, raising INT doesn't wake it up
+    @Test
+    public void testHaltInterruptsDisabled() {
+        Lockstep l = new Lockstep(program(0xF3, 0x31, 0x00, 0xF0, 0x76), 0);
+        l.idleBursts("halt, di");
+        Assert.assertTrue(l.ref.isHalted());
+        l.interrupt(true);
+        l.idleBursts("halt, di, int on");
+        Assert.assertTrue(l.ref.isHalted());
+    }
+
+    //DI; LD SP,F000h; IM 1; LD B,0; EI; halt: HALT; JR halt, the handler at 0x38 counts the interrupts in B
+    @Test
+    public void testHaltInterruptPending() {
+        Lockstep l = new Lockstep(program(0xF3, 0x31, 0x00, 0xF0, 0xED, 0x56, 0x06, 0x00, 0xFB, 0x76, 0x18,
+                0xFD), 0);
+        l.idleBursts("halt, ei");
+        Assert.assertTrue(l.ref.isHalted());
+        Assert.assertEquals(0, l.ref.getZ80State().getRegB());
+        l.interrupt(true);
+        l.idleBursts("halt, ei, int on");
+        Assert.assertNotEquals(0, l.ref.getZ80State().getRegB());
+        l.interrupt(false);
+        l.idleBursts("halt, ei, int off");
+        Assert.assertTrue(l.ref.isHalted());
+    }
+
+    private void runSeed(int seed, int bursts) {
+        Random r = new Random(seed);
+        byte[] rom = new byte[ROM_END];
+        r.nextBytes(rom);
+        //fewer HALTs, the code runs longer before an interrupt is needed
+        for (int i = 0; i < rom.length; i++) {
+            rom[i] = rom[i] == 0x76 && r.nextInt(8) > 0 ? 0 : rom[i];
+        }
+        Lockstep l = new Lockstep(rom, r.nextInt(0x100) & 0xFE);
+        r.nextBytes(l.refBus.ram);
+        System.arraycopy(l.refBus.ram, 0, l.bus.ram, 0, l.bus.ram.length);
+        for (int i = 0; i < bursts; i++) {
+            int budget = r.nextInt(MAX_BUDGET);
+            if (r.nextInt(4) == 0) {
+                l.interrupt(r.nextBoolean());
+            }
+            l.burst("seed " + seed + ", burst " + i, budget);
+        }
+    }
+
+    //the program at 0, the IM 1 handler at 0x38: INC B; EI; RET
+    private static byte[] program(int... code) {
+        byte[] rom = new byte[ROM_END];
+        for (int i = 0; i < code.length; i++) {
+            rom[i] = (byte) code[i];
+        }
+        rom[0x38] = 0x04;
+        rom[0x39] = (byte) 0xFB;
+        rom[0x3A] = (byte) 0xC9;
+        return rom;
+    }
+
+    //Z80Provider#executeBurst, Z80CoreWrapper overrides it with idle skip
+    private static int executeBurstPlain(Z80Provider z80, int budget) {
+        int cycles = 0;
+        while (cycles <= budget) {
+            cycles += Math.max(1, z80.executeInstruction());
+        }
+        return cycles;
+    }
+
+    private static String toStateString(Z80State s) {
+        return Z80Helper.toString(s) + "halted: " + s.isHalted();
+    }
+
+    /**
+     * The backend and the reference on two buses with the same ROM, checked after every burst
+     */
+    private class Lockstep {
+        final TestBus refBus, bus;
+        final Z80Provider ref, z80;
+        private final Z80State scratch = new Z80State();
+
+        Lockstep(byte[] rom, int vector) {
+            refBus = new TestBus(rom, vector);
+            bus = new TestBus(rom, vector);
+            ref = Z80CoreWrapper.createInstance(refBus);
+            z80 = createZ80(bus);
+        }
+
+        void interrupt(boolean value) {
+            ref.interrupt(value);
+            z80.interrupt(value);
+        }
+
+        void idleBursts(String msg) {
+            for (int budget : IDLE_BUDGETS) {
+                burst(msg + ", budget " + budget, budget);
+            }
+        }
+
+        void burst(String msg, int budget) {
+            Assert.assertEquals(msg + ", cycles", executeBurstPlain(ref, budget), z80.executeBurst(budget));
+            String refState = toStateString(ref.getZ80State());
+            //the no-allocation export first, the other one can sync the core
+            Assert.assertEquals(msg + ", snapshot registers", refState,
+                    toStateString(z80.getZ80State(scratch)));
+            Assert.assertEquals(msg + ", registers", refState, toStateString(z80.getZ80State()));
+            Assert.assertArrayEquals(msg + ", memory", refBus.ram, bus.ram);
+        }
+    }
+
+    /**
+     * ROM below ROM_END, RAM above it; io ports read a value derived from the port number
+     */
+    static class TestBus implements BaseBusProvider {
+
+        private final MemoryMap memoryMap = new MemoryMap();
+        final byte[] ram = new byte[0x10000 - ROM_END];
+        private final byte[] rom;
+        private final int vector;
+
+        TestBus(byte[] rom, int vector) {
+            this.rom = rom;
+            this.vector = vector;
+            memoryMap.mapRead(0, ROM_END, rom, 0);
+            memoryMap.mapReadWrite(ROM_END, 0x10000, ram, 0);
+        }
+
+        @Override
+        public int read8(int address) {
+            address &= 0xFFFF;
+            return (address < ROM_END ? rom[address] : ram[address - ROM_END]) & 0xFF;
+        }
+
+        @Override
+        public void write8(int address, int data) {
+            address &= 0xFFFF;
+            if (address >= ROM_END) {
+                ram[address - ROM_END] = (byte) data;
+            }
+        }
+
+        @Override
+        public void writeIoPort(int port, int value) {
+            //DO NOTHING
+        }
+
+        @Override
+        public int readIoPort(int port) {
+            return (port ^ 0x5A) & 0xFF;
+        }
+
+        @Override
+        public BaseBusProvider attach(Device device) {
+            return this;
+        }
+
+        @Override
+        public int getAddressOnBus() {
+            return vector;
+        }
+
+        @Override
+        public MemoryMap getMemoryMap() {
+            return memoryMap;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Z80JitLockstepTest
+ * Copyright (c) 2026-2026 Federico Berti
+ * Last modified: 18/10/2026, 10:00
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.fbdev.helios.z80.jit;
+
+import com.fbdev.helios.model.BaseBusProvider;
+import com.fbdev.helios.z80.Z80LockstepTest;
+import com.fbdev.helios.z80.Z80Provider;
+
+/**
+ * Z80JitLockstepTest
+ * <p>
+ * Z80JitWrapper against Z80CoreWrapper
+ * <p>
+ * Federico Berti
+ * <p>
+ * Copyright 2026
+ */
+public class Z80JitLockstepTest extends Z80LockstepTest {
+
+    @Override
+    protected Z80Provider createZ80(BaseBusProvider bus) {
+        return Z80JitWrapper.createInstance(bus, ROM_END);
+    }
+}